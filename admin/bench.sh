@@ -0,0 +1,15 @@
+#! /bin/bash 
+###########################################
+# Run JMH benchmarks in src/test/java/com/chatopera/bot/sdk/benchmarks
+# e.g. ./admin/bench.sh ResponseDecode -prof gc
+###########################################
+
+# constants
+baseDir=$(cd `dirname "$0"`;pwd)
+# functions
+
+# main 
+[ -z "${BASH_SOURCE[0]}" -o "${BASH_SOURCE[0]}" = "$0" ] || return
+cd $baseDir/..
+mvn -q -DskipTests test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.classpath
+java -cp target/test-classes:target/classes:$(cat target/bench.classpath) org.openjdk.jmh.Main $*
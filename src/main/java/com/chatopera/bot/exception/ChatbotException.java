@@ -23,4 +23,8 @@ public class ChatbotException extends Exception{
     public ChatbotException(String msg) {
         super(msg);
     }
+
+    public ChatbotException(final String msg, final Throwable cause) {
+        super(msg, cause);
+    }
 }
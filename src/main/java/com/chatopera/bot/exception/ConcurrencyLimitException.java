@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.exception;
+
+/**
+ * 并发请求数达到自适应并发限制，等待超时
+ */
+public class ConcurrencyLimitException extends ChatbotException {
+    public ConcurrencyLimitException(final String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.exception;
+
+/**
+ * 请求被准入队列丢弃（队列已满、被更新的请求挤出或剩余时间不足），没有发送到服务端
+ */
+public class LoadSheddingException extends ChatbotException {
+    public LoadSheddingException(final String msg) {
+        super(msg);
+    }
+}
@@ -15,13 +15,41 @@
  */
 package com.chatopera.bot.sdk;
 
+import com.chatopera.bot.exception.BulkheadFullException;
+import com.chatopera.bot.exception.CircuitBreakerOpenException;
+import com.chatopera.bot.exception.ConcurrencyLimitException;
+import com.chatopera.bot.exception.RateLimitedException;
+import com.chatopera.bot.exception.ResultException;
+import com.chatopera.bot.exception.LoadSheddingException;
+import com.chatopera.bot.sdk.basics.AdmissionQueue;
+import com.chatopera.bot.sdk.basics.Bulkhead;
+import com.chatopera.bot.sdk.basics.CircuitBreaker;
+import com.chatopera.bot.sdk.basics.ConcurrencyLimiter;
 import com.chatopera.bot.sdk.basics.Constants;
 import com.chatopera.bot.sdk.basics.Credentials;
+import com.chatopera.bot.sdk.basics.EndpointRouter;
+import com.chatopera.bot.sdk.basics.FaqCache;
+import com.chatopera.bot.sdk.basics.HedgePolicy;
 import com.chatopera.bot.sdk.basics.Response;
 import com.chatopera.bot.exception.ChatbotException;
 import com.chatopera.bot.utils.FileUtil;
+import com.chatopera.bot.sdk.basics.PathTemplate;
+import com.chatopera.bot.sdk.basics.RateLimiter;
+import com.chatopera.bot.sdk.basics.RawResponse;
+import com.chatopera.bot.sdk.basics.RequestCoalescer;
 import com.chatopera.bot.sdk.basics.RestAPI;
-import kong.unirest.Unirest;
+import com.chatopera.bot.sdk.basics.ResultDecoder;
+import com.chatopera.bot.sdk.basics.SdkExecutors;
+import com.chatopera.bot.sdk.basics.RetryPolicy;
+import com.chatopera.bot.sdk.basics.Transport;
+import com.chatopera.bot.sdk.basics.TransportResponse;
+import com.chatopera.bot.sdk.basics.Transports;
+import com.chatopera.bot.sdk.basics.Warmup;
+import com.chatopera.bot.sdk.models.ConversationReply;
+import com.chatopera.bot.sdk.models.FaqDoc;
+import com.chatopera.bot.sdk.models.IntentReply;
+import com.chatopera.bot.sdk.models.IntentSession;
+import com.chatopera.bot.sdk.models.Page;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -30,10 +58,15 @@ import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * Chatopera聊天机器人
@@ -47,7 +80,25 @@ public class Chatbot {
     private String clientId;
     private String clientSecret;
     private Credentials credentials;
+    private Transport transport = RestAPI.getDefault();
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private HedgePolicy hedgePolicy;
+    private RequestCoalescer requestCoalescer;
+    private FaqCache faqCache;
+    private RateLimiter rateLimiter;
+    private Bulkhead bulkhead;
+    private AdmissionQueue admissionQueue;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private boolean lazyDecoding;
+    private EndpointRouter router;
+    private String urlPrefix;                                       // baseUrl/clientId
+    private String signPrefix;                                      // 签名使用的 Path 前缀，basePath/clientId
+    private Map<EndpointRouter.Endpoint, String> endpointPrefixes;  // 多个服务地址时各地址的 Url 前缀
     private final static int ASR_DEFAULT_NBEST = 5;
+    private final static PathTemplate FAQ_LIST = PathTemplate.compile("/faq/database?page={page}&limit={limit}&q={q}&category={category}");
+    private final static PathTemplate FAQ_DETAIL = PathTemplate.compile("/faq/database/{id}");
+    private final static PathTemplate INTENT_SESSION = PathTemplate.compile("/clause/prover/session/{id}");
     private final static boolean ASR_DEFAULT_POS = false;
 
     // 不支持定义空实例
@@ -78,6 +129,8 @@ public class Chatbot {
         }
 
         parseEndpoint(baseUrl);
+        this.urlPrefix = this.baseUrl + "/" + this.clientId;
+        this.signPrefix = Constants.basePath + "/" + this.clientId;
     }
 
     /**
@@ -92,6 +145,52 @@ public class Chatbot {
         this(clientId, clientSecret, Constants.defaultBaseUrl);
     }
 
+    /**
+     * 创建聊天机器人实例，使用指定的传输层
+     * 多个实例可以共用同一个 Transport，比如将查询和后台管理任务分配到不同的连接池
+     *
+     * @param clientId
+     * @param clientSecret
+     * @param baseUrl
+     * @param transport    传输层，参考 {@link RestAPI#RestAPI(com.chatopera.bot.sdk.basics.ConnectionConfig)}
+     * @throws ChatbotException
+     * @throws MalformedURLException
+     */
+    public Chatbot(final String clientId, final String clientSecret, final String baseUrl, final Transport transport) throws ChatbotException, MalformedURLException {
+        this(clientId, clientSecret, baseUrl);
+        setTransport(transport);
+    }
+
+    /**
+     * 创建聊天机器人实例，使用多个服务地址，比如部署在不同数据中心的 Chatopera 服务
+     * 请求发往 EWMA 延迟最低的地址，少量请求随机发往其它地址以更新延迟，连续失败的地址被摘除，定期探测恢复；第一个地址作为 getBaseUrl 等的返回值
+     *
+     * @param clientId
+     * @param clientSecret
+     * @param baseUrls
+     * @throws ChatbotException
+     * @throws MalformedURLException
+     */
+    public Chatbot(final String clientId, final String clientSecret, final List<String> baseUrls) throws ChatbotException, MalformedURLException {
+        this(clientId, clientSecret, (baseUrls == null || baseUrls.isEmpty()) ? null : baseUrls.get(0));
+
+        if (baseUrls.size() > 1) {
+            List<String> urls = new ArrayList<>();
+            for (String url : baseUrls) {
+                if (StringUtils.isBlank(url)) {
+                    throw new ChatbotException("智能问答引擎URL不能为空。");
+                }
+                urls.add(toBaseUrl(new URL(url)));
+            }
+            this.router = new EndpointRouter(urls, this::probe);
+            Map<EndpointRouter.Endpoint, String> prefixes = new IdentityHashMap<>();
+            for (EndpointRouter.Endpoint endpoint : router.getEndpoints()) {
+                prefixes.put(endpoint, endpoint.getBaseUrl() + "/" + this.clientId);
+            }
+            this.endpointPrefixes = prefixes;
+        }
+    }
+
     /**
      * 分析URL信息
      *
@@ -103,123 +202,1010 @@ public class Chatbot {
         this.schema = uri.getProtocol();
         this.hostname = uri.getHost();
         this.port = uri.getPort();
+        this.baseUrl = toBaseUrl(uri);
+    }
 
-        if (port == -1) {
-            this.baseUrl = this.schema + "://" + this.hostname + Constants.basePath;
+    /**
+     * 服务地址，签名使用的 Path 前缀对所有地址都是 Constants.basePath
+     *
+     * @param uri
+     * @return
+     */
+    private static String toBaseUrl(final URL uri) {
+        if (uri.getPort() == -1) {
+            return uri.getProtocol() + "://" + uri.getHost() + Constants.basePath;
         } else {
-            this.baseUrl = this.schema + "://" + this.hostname + ":" + this.port + Constants.basePath;
+            return uri.getProtocol() + "://" + uri.getHost() + ":" + uri.getPort() + Constants.basePath;
         }
     }
 
 
-    public String getSchema() {
-        return schema;
-    }
+    public String getSchema() {
+        return schema;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 多个服务地址的路由，只有一个服务地址时为 null
+     *
+     * @return
+     */
+    public EndpointRouter getEndpointRouter() {
+        return router;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(final Transport transport) throws ChatbotException {
+        if (transport == null) {
+            throw new ChatbotException("Transport should not be null.");
+        }
+        this.transport = transport;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * 设置重试策略，为 null 时不重试
+     *
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 设置熔断器，按接口分别统计失败率，为 null 时不熔断
+     *
+     * @param circuitBreaker
+     */
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * 设置对冲策略，只用于 conversation 和 faq 查询，同步和异步接口都对冲，为 null 时不对冲
+     * 对冲请求另外占用舱壁隔离和并发限制的额度，没有额度时不对冲
+     *
+     * @param hedgePolicy
+     */
+    public void setHedgePolicy(final HedgePolicy hedgePolicy) {
+        this.hedgePolicy = hedgePolicy;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * 设置请求合并，为 null 时不合并
+     *
+     * @param requestCoalescer
+     */
+    public void setRequestCoalescer(final RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    public FaqCache getFaqCache() {
+        return faqCache;
+    }
+
+    /**
+     * 设置知识库查询缓存，只用于 faq 接口，为 null 时不缓存
+     * 相同的问题和阈值在有效期内不再发送请求，rc 为 0 时返回值不包含 status 等和用户相关的字段，无论是否命中
+     *
+     * @param faqCache
+     */
+    public void setFaqCache(final FaqCache faqCache) {
+        this.faqCache = faqCache;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 设置客户端限流，为 null 时不限流
+     * 同一个机器人的多个 Chatbot 实例应共用一个 RateLimiter
+     *
+     * @param rateLimiter
+     */
+    public void setRateLimiter(final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * 设置舱壁隔离，查询、后台读写和语音识别分别限制并发，为 null 时不限制
+     *
+     * @param bulkhead
+     */
+    public void setBulkhead(final Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public AdmissionQueue getAdmissionQueue() {
+        return admissionQueue;
+    }
+
+    /**
+     * 设置查询请求的准入队列，对话、知识库和多轮对话的查询排队执行，超出队列或剩余时间不足时丢弃，为 null 时不排队
+     *
+     * @param admissionQueue
+     */
+    public void setAdmissionQueue(final AdmissionQueue admissionQueue) {
+        this.admissionQueue = admissionQueue;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * 设置自适应并发限制，根据耗时和失败调整同时发送的请求数，为 null 时不限制
+     * 同一个机器人的多个 Chatbot 实例应共用一个 ConcurrencyLimiter
+     *
+     * @param concurrencyLimiter
+     */
+    public void setConcurrencyLimiter(final ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * 设置 command 返回延迟解析的 Response，data 和 status 在第一次读取时才解析
+     * 只读取 rc 或者返回值很大时可以减少解析的开销，参考 {@link Response#lazy(String)}
+     *
+     * @param lazyDecoding
+     */
+    public void setLazyDecoding(final boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    /**
+     * 生成认证信息
+     *
+     * @param method
+     * @param path
+     * @return
+     * @throws Exception
+     */
+    private HashMap<String, String> auth(final String method, final String path) throws Exception {
+        HashMap<String, String> x = new HashMap<>();
+        if (this.credentials != null) {
+            String token = this.credentials.generate(method, path);
+            x.put("Authorization", token);
+        }
+        return x;
+    }
+
+    /**
+     * 核心访问接口
+     *
+     * @param method  PUT, POST, GET, DELETE, etc.
+     * @param path    /faq/xxx
+     * @param payload JSONObject body
+     * @return
+     * @throws ChatbotException
+     */
+    public Response command(final String method, String path, final JSONObject payload) throws ChatbotException {
+        return command(method, path, payload, false);
+    }
+
+    /**
+     * 核心访问接口
+     * 设置了准入队列时，查询请求排队执行，被丢弃时抛出 {@link LoadSheddingException} 或返回降级回复
+     * 设置了请求合并时，并发的相同 GET 请求、知识库查询和幂等请求只发送一次，共用同一个 Response
+     * 设置了限流时，超出额度按 RateLimiter 的模式等待或抛出 {@link RateLimitedException}
+     * 设置了舱壁隔离时，按操作类型限制并发，队列已满时抛出 {@link BulkheadFullException}
+     * 设置了自适应并发限制时，达到限制等待超时抛出 {@link ConcurrencyLimitException}
+     * 设置了熔断器时，熔断器打开的接口直接抛出 {@link CircuitBreakerOpenException}，不发送请求
+     * 设置了重试策略时，GET, PUT, DELETE 请求自动重试；POST 请求只有在 idempotent 为 true 时重试
+     *
+     * @param method     PUT, POST, GET, DELETE, etc.
+     * @param path       /faq/xxx
+     * @param payload    JSONObject body
+     * @param idempotent 请求是否幂等，重复发送不会产生副作用
+     * @return
+     * @throws ChatbotException
+     */
+    public Response command(final String method, String path, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        return invoke(method, withSdkLang(path), payload, idempotent);
+    }
+
+    /**
+     * 核心访问接口，不解析返回值，用于网关转发
+     * 返回 HTTP 状态码、响应头、rc 和去掉 chatbotID 的响应体，响应体为原始字节，可以通过 ByteBuffer 转发
+     * 经过限流、舱壁隔离、并发限制、熔断器和重试，不经过准入队列和请求合并
+     *
+     * @param method     PUT, POST, GET, DELETE
+     * @param path       /faq/xxx
+     * @param payload    JSONObject body
+     * @param idempotent 请求是否幂等，重复发送不会产生副作用
+     * @return
+     * @throws ChatbotException
+     */
+    public RawResponse commandRaw(final String method, final String path, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        return new RawResponse(retrieve(method, withSdkLang(path), payload, idempotent));
+    }
+
+    /**
+     * 核心访问接口，不解析返回值
+     *
+     * @param method  PUT, POST, GET, DELETE
+     * @param path    /faq/xxx
+     * @param payload JSONObject body
+     * @return
+     * @throws ChatbotException
+     */
+    public RawResponse commandRaw(final String method, final String path, final JSONObject payload) throws ChatbotException {
+        return commandRaw(method, path, payload, false);
+    }
+
+    /**
+     * 核心访问接口，不解析返回值，异步版本
+     * 经过限流、舱壁隔离、并发限制、熔断器和重试策略，不经过准入队列和请求合并；按非幂等请求处理，POST 请求不重试
+     *
+     * @param method  PUT, POST, GET, DELETE
+     * @param path    /faq/xxx
+     * @param payload JSONObject body
+     * @return
+     */
+    public CompletableFuture<RawResponse> commandRawAsync(final String method, final String path, final JSONObject payload) {
+        return transmitAsync(method, withSdkLang(path), payload, false).thenApply(RawResponse::new);
+    }
+
+    /**
+     * 预编译请求，Path 模版只解析一次，参数按 RFC 3986 编码
+     *
+     * @param method   PUT, POST, GET, DELETE
+     * @param template Path 模版，比如 /faq/database/{id}/extend 或 /faq/database?page={page}&q={q}
+     * @return
+     * @throws ChatbotException
+     */
+    public PreparedCommand prepare(final String method, final String template) throws ChatbotException {
+        return prepare(method, template, false);
+    }
+
+    /**
+     * 预编译请求，Path 模版只解析一次，参数按 RFC 3986 编码
+     *
+     * @param method     PUT, POST, GET, DELETE
+     * @param template   Path 模版，比如 /faq/database/{id}/extend 或 /faq/database?page={page}&q={q}
+     * @param idempotent 请求是否幂等，重复发送不会产生副作用
+     * @return
+     * @throws ChatbotException
+     */
+    public PreparedCommand prepare(final String method, final String template, final boolean idempotent) throws ChatbotException {
+        switch (method) {
+            case "POST":
+            case "GET":
+            case "DELETE":
+            case "PUT":
+                break;
+            default:
+                throw new ChatbotException("Invalid requested method, only GET, POST, DELETE, PUT are supported.");
+        }
+        try {
+            return new PreparedCommand(this, method, PathTemplate.compile(template), idempotent);
+        } catch (IllegalArgumentException e) {
+            throw new ChatbotException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 发送请求
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws ChatbotException
+     */
+    Response invoke(final String method, final String p, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        final AdmissionQueue admission = admissionQueue;
+        if (admission != null && Bulkhead.categoryOf(method, p) == Bulkhead.Category.QUERY) {
+            return admission.execute(p, payload, () -> dispatch(method, p, payload, idempotent));
+        }
+        return dispatch(method, p, payload, idempotent);
+    }
+
+    /**
+     * 合并或者直接发送请求
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws ChatbotException
+     */
+    private Response dispatch(final String method, final String p, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        final RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer != null && isCoalesced(method, p, idempotent)) {
+            return coalescer.execute(RequestCoalescer.key(method, p, payload), () -> exchange(method, p, payload, idempotent));
+        }
+        return exchange(method, p, payload, idempotent);
+    }
+
+    /**
+     * 发送请求并处理返回值
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws ChatbotException
+     */
+    private Response exchange(final String method, final String p, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        /**
+         * 发送请求
+         */
+        JSONObject result = null;
+        Response lazy = null;
+        try {
+            TransportResponse raw = transmit(method, p, payload, idempotent);
+            if (lazyDecoding) {
+                lazy = raw.toLazyResponse();
+            } else {
+                result = raw.toJSON();
+            }
+        } catch (CircuitBreakerOpenException | RateLimitedException | BulkheadFullException | ConcurrencyLimitException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new ChatbotException(e.toString(), e);
+        }
+
+        /**
+         * 处理返回值
+         */
+        return lazy != null ? lazy : toResponse(result);
+    }
+
+    /**
+     * 经过限流、舱壁隔离和并发限制发送请求，返回原始的响应
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws Exception
+     */
+    private TransportResponse transmit(final String method, final String p, final JSONObject payload, final boolean idempotent) throws Exception {
+        switch (method) {
+            case "POST":
+            case "GET":
+            case "DELETE":
+            case "PUT":
+                break;
+            default:
+                throw new ChatbotException("Invalid requested method, only GET, POST, DELETE, PUT are supported.");
+        }
+
+        if (rateLimiter != null) {
+            rateLimiter.acquire(RateLimiter.kindOf(method, p));
+        }
+
+        final Bulkhead bh = bulkhead;
+        final Bulkhead.Category category = bh != null ? Bulkhead.categoryOf(method, p) : null;
+        if (bh != null) {
+            bh.acquire(category);
+        }
+        try {
+            return limited(method, p, payload, idempotent);
+        } finally {
+            if (bh != null) {
+                bh.release(category);
+            }
+        }
+    }
+
+    /**
+     * 发送请求，返回响应体，用于类型化的接口
+     * 经过 transmit 的所有策略，但不经过准入队列和请求合并
+     *
+     * @param method
+     * @param path    /faq/xxx
+     * @param payload
+     * @return
+     * @throws ChatbotException
+     */
+    private byte[] fetch(final String method, final String path, final JSONObject payload) throws ChatbotException {
+        return fetch(method, path, payload, false);
+    }
+
+    /**
+     * 发送请求，返回响应体，用于类型化的接口
+     *
+     * @param method
+     * @param path       /faq/xxx
+     * @param payload
+     * @param idempotent 请求是否幂等，比如知识库查询，设置了重试策略时可以重试
+     * @return
+     * @throws ChatbotException
+     */
+    private byte[] fetch(final String method, final String path, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        return retrieve(method, withSdkLang(path), payload, idempotent).getBody();
+    }
+
+    /**
+     * 发送请求，返回原始的响应，异常转化为 ChatbotException
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws ChatbotException
+     */
+    private TransportResponse retrieve(final String method, final String p, final JSONObject payload, final boolean idempotent) throws ChatbotException {
+        try {
+            return transmit(method, p, payload, idempotent);
+        } catch (CircuitBreakerOpenException | RateLimitedException | BulkheadFullException | ConcurrencyLimitException e) {
+            throw e;
+        } catch (ChatbotException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChatbotException(e.toString(), e);
+        }
+    }
+
+    /**
+     * 在自适应并发限制内发送请求，重试和对冲时每次发送分别记录耗时和结果
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws Exception
+     */
+    private TransportResponse limited(final String method, final String p, final JSONObject payload, final boolean idempotent) throws Exception {
+        final ConcurrencyLimiter cl = concurrencyLimiter;
+        if (cl == null) {
+            return execute(method, p, payload, idempotent);
+        }
+
+        // 每次发送的耗时在 send 和 sendAsync 中记录，熔断器的快速失败和重试的等待不计入
+        cl.acquire();
+        try {
+            return execute(method, p, payload, idempotent);
+        } finally {
+            cl.release();
+        }
+    }
+
+    /**
+     * 经过熔断器和重试策略发送请求
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     * @throws Exception
+     */
+    private TransportResponse execute(final String method, final String p, final JSONObject payload, final boolean idempotent) throws Exception {
+        final CircuitBreaker breaker = circuitBreaker;
+        final String key = breaker != null ? CircuitBreaker.key(method, p) : null;
+        if (breaker != null) {
+            breaker.acquire(key);
+        }
+
+        TransportResponse raw;
+        try {
+            if (retryPolicy != null) {
+                raw = retryPolicy.execute(() -> send(method, p, payload), idempotent || !StringUtils.equals(method, "POST"));
+            } else {
+                raw = send(method, p, payload);
+            }
+        } catch (Exception e) {
+            if (breaker != null) {
+                // 只有网络异常记为失败，参数错误等调用方的异常不影响其它调用方
+                breaker.onError(key, e);
+            }
+            throw e;
+        }
+
+        if (breaker != null) {
+            if (raw.getStatus() >= 500 || raw.getStatus() == 429) {
+                breaker.onFailure(key);
+            } else {
+                breaker.onSuccess(key);
+            }
+        }
+        return raw;
+    }
+
+    /**
+     * GET 请求，知识库查询和幂等的 POST 请求可以合并
+     *
+     * @param method
+     * @param path
+     * @param idempotent
+     * @return
+     */
+    private static boolean isCoalesced(final String method, final String path, final boolean idempotent) {
+        return StringUtils.equals(method, "GET") || idempotent ||
+                (StringUtils.equals(method, "POST") && StringUtils.startsWith(path, "/faq/query"));
+    }
+
+    /**
+     * 发送一次请求，每次发送都重新生成签名
+     *
+     * @param method
+     * @param path    已经添加 sdklang 参数的 path
+     * @param payload
+     * @return
+     * @throws Exception
+     */
+    private TransportResponse send(final String method, final String path, final JSONObject payload) throws Exception {
+        TransportResponse resp;
+        if (hedgePolicy != null && isHedged(method, path)) {
+            resp = hedgePolicy.execute(() -> sendAsync(method, path, payload), () -> hedgeAsync(method, path, payload));
+        } else {
+            final EndpointRouter.Endpoint endpoint = router != null ? router.select() : null;
+            String url = urlPrefix(endpoint).concat(path);
+            HashMap<String, String> headers = auth(method, signPrefix.concat(path));
+
+            final ConcurrencyLimiter cl = concurrencyLimiter;
+            final long start = System.nanoTime();
+            try {
+                if (StringUtils.equals(method, "POST") && StringUtils.startsWith(path, "/asr/recognize")) {
+                    resp = postAsrRecognize(url, payload, null, headers);
+                } else {
+                    resp = transport.request(method, url, payload, headers);
+                }
+            } catch (Exception e) {
+                if (cl != null) {
+                    sample(cl, start, null);
+                }
+                if (endpoint != null) {
+                    router.onFailure(endpoint);
+                }
+                throw e;
+            }
+            if (cl != null) {
+                sample(cl, start, resp);
+            }
+            if (endpoint != null) {
+                route(endpoint, resp, start);
+            }
+        }
+
+        if (rateLimiter != null) {
+            rateLimiter.onResponse(RateLimiter.kindOf(method, path), resp);
+        }
+        return resp;
+    }
+
+    /**
+     * 发送一次异步请求，每次发送都重新生成签名
+     *
+     * @param method
+     * @param path    已经添加 sdklang 参数的 path
+     * @param payload
+     * @return
+     */
+    private CompletableFuture<TransportResponse> sendAsync(final String method, final String path, final JSONObject payload) {
+        final EndpointRouter.Endpoint endpoint = router != null ? router.select() : null;
+        final ConcurrencyLimiter cl = concurrencyLimiter;
+        final long start = System.nanoTime();
+        CompletableFuture<TransportResponse> future = requestAsync(endpoint, method, path, payload);
+        if (endpoint == null && cl == null) {
+            return future;
+        }
+        return Transports.propagateCancel(future.whenComplete((resp, err) -> {
+            if (future.isCancelled()) {
+                // 对冲时被取消的请求不计入成功或失败
+                return;
+            }
+            if (cl != null) {
+                sample(cl, start, err != null ? null : resp);
+            }
+            if (endpoint == null) {
+                return;
+            }
+            if (err != null) {
+                router.onFailure(endpoint);
+            } else {
+                route(endpoint, resp, start);
+            }
+        }), future);
+    }
+
+    /**
+     * 发送一次对冲请求，和第一个请求分别占用舱壁隔离和并发限制的额度
+     *
+     * @param method
+     * @param path    已经添加 sdklang 参数的 path
+     * @param payload
+     * @return 没有额度时为 null，不再对冲
+     */
+    private CompletableFuture<TransportResponse> hedgeAsync(final String method, final String path, final JSONObject payload) {
+        final Bulkhead bh = bulkhead;
+        final Bulkhead.Category category = Bulkhead.categoryOf(method, path);
+        if (bh != null && !bh.tryAcquire(category)) {
+            return null;
+        }
+        final ConcurrencyLimiter cl = concurrencyLimiter;
+        if (cl != null && !cl.tryAcquire()) {
+            if (bh != null) {
+                bh.release(category);
+            }
+            return null;
+        }
+
+        final CompletableFuture<TransportResponse> future = sendAsync(method, path, payload);
+        if (bh == null && cl == null) {
+            return future;
+        }
+        return Transports.propagateCancel(future.whenComplete((resp, err) -> {
+            if (cl != null) {
+                cl.release();
+            }
+            if (bh != null) {
+                bh.release(category);
+            }
+        }), future);
+    }
+
+    /**
+     * 记录一次发送的耗时，异常、5xx 和 429 记为失败
+     *
+     * @param cl
+     * @param start
+     * @param resp  发送异常时为 null
+     */
+    private static void sample(final ConcurrencyLimiter cl, final long start, final TransportResponse resp) {
+        cl.onSample(System.nanoTime() - start, resp == null || resp.getStatus() >= 500 || resp.getStatus() == 429);
+    }
+
+    /**
+     * 记录服务地址的请求结果，5xx 记为失败
+     *
+     * @param endpoint
+     * @param resp
+     * @param start
+     */
+    private void route(final EndpointRouter.Endpoint endpoint, final TransportResponse resp, final long start) {
+        if (resp.getStatus() >= 500) {
+            router.onFailure(endpoint);
+        } else {
+            router.onSuccess(endpoint, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 探测被摘除的服务地址
+     *
+     * @param endpoint
+     */
+    private void probe(final EndpointRouter.Endpoint endpoint) {
+        requestAsync(endpoint, "GET", withSdkLang("/"), null)
+                .whenComplete((resp, err) -> router.onProbe(endpoint, err == null && resp.getStatus() < 500));
+    }
+
+    /**
+     * 向指定的服务地址发送一次签名的异步请求，不经过路由
+     *
+     * @param endpoint 为 null 时使用 baseUrl
+     * @param method
+     * @param path     已经添加 sdklang 参数的 path
+     * @param payload
+     * @return
+     */
+    private CompletableFuture<TransportResponse> requestAsync(final EndpointRouter.Endpoint endpoint, final String method, final String path, final JSONObject payload) {
+        try {
+            String url = urlPrefix(endpoint).concat(path);
+            return transport.requestAsync(method, url, payload, auth(method, signPrefix.concat(path)));
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * 预热连接池，同时发送 connections 个签名的 GET / 请求并等待返回
+     * 有多个服务地址时，每个地址分别预热；可以在就绪检查中根据返回值判断连接池是否就绪
+     *
+     * @param connections 每个服务地址预热的连接数
+     * @return 成功返回的请求数
+     * @throws ChatbotException
+     */
+    public int warmup(final int connections) throws ChatbotException {
+        final String p = withSdkLang("/");
+        if (router == null) {
+            return Warmup.run(connections, () -> request(null, "GET", p));
+        }
+
+        int ok = 0;
+        for (EndpointRouter.Endpoint endpoint : router.getEndpoints()) {
+            ok += Warmup.run(connections, () -> request(endpoint, "GET", p));
+        }
+        return ok;
+    }
+
+    /**
+     * 向指定的服务地址发送一次签名的请求，不经过路由
+     *
+     * @param endpoint 为 null 时使用 baseUrl
+     * @param method
+     * @param path     已经添加 sdklang 参数的 path
+     * @return
+     * @throws Exception
+     */
+    private TransportResponse request(final EndpointRouter.Endpoint endpoint, final String method, final String path) throws Exception {
+        String url = urlPrefix(endpoint).concat(path);
+        return transport.request(method, url, null, auth(method, signPrefix.concat(path)));
+    }
+
+    /**
+     * 对话和知识库查询可以对冲
+     *
+     * @param method
+     * @param path
+     * @return
+     */
+    private static boolean isHedged(final String method, final String path) {
+        return StringUtils.equals(method, "POST") &&
+                (StringUtils.startsWith(path, "/conversation/query") || StringUtils.startsWith(path, "/faq/query"));
+    }
+
+    /**
+     * 核心访问接口，异步版本
+     * 请求通过 Unirest 的异步客户端发送，排队、重试的等待和请求期间都不占用线程；语音识别接口需要上传文件，在 SdkExecutors 的线程池中执行
+     * 和同步接口一样经过准入队列、请求合并、熔断器和重试策略；重试和准入队列的等待由 SdkExecutors 的定时器处理
+     * 设置了限流、舱壁隔离或并发限制时不等待，超出额度时返回 RateLimitedException、BulkheadFullException 或 ConcurrencyLimitException
+     *
+     * @param method  PUT, POST, GET, DELETE
+     * @param path    /faq/xxx
+     * @param payload JSONObject body
+     * @return
+     */
+    public CompletableFuture<Response> commandAsync(final String method, final String path, final JSONObject payload) {
+        return commandAsync(method, path, payload, false);
+    }
+
+    /**
+     * 核心访问接口，异步版本
+     *
+     * @param method     PUT, POST, GET, DELETE
+     * @param path       /faq/xxx
+     * @param payload    JSONObject body
+     * @param idempotent 请求是否幂等，重复发送不会产生副作用；设置了重试策略时 POST 请求也可以重试，相同的请求可以合并
+     * @return
+     */
+    public CompletableFuture<Response> commandAsync(final String method, final String path, final JSONObject payload, final boolean idempotent) {
+        return invokeAsync(method, withSdkLang(path), payload, idempotent);
+    }
+
+    /**
+     * 发送异步请求
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     */
+    CompletableFuture<Response> invokeAsync(final String method, final String p, final JSONObject payload, final boolean idempotent) {
+        if (StringUtils.equals(method, "POST") && StringUtils.startsWith(p, "/asr/recognize")) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return invoke(method, p, payload, idempotent);
+                } catch (ChatbotException e) {
+                    throw new CompletionException(e);
+                }
+            }, SdkExecutors.shared());
+        }
+
+        final AdmissionQueue admission = admissionQueue;
+        if (admission != null && Bulkhead.categoryOf(method, p) == Bulkhead.Category.QUERY) {
+            return admission.executeAsync(p, payload, () -> dispatchAsync(method, p, payload, idempotent));
+        }
+        return dispatchAsync(method, p, payload, idempotent);
+    }
+
+    /**
+     * 合并或者直接发送异步请求
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     */
+    private CompletableFuture<Response> dispatchAsync(final String method, final String p, final JSONObject payload, final boolean idempotent) {
+        final RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer != null && isCoalesced(method, p, idempotent)) {
+            return coalescer.executeAsync(RequestCoalescer.key(method, p, payload), () -> exchangeAsync(method, p, payload, idempotent));
+        }
+        return exchangeAsync(method, p, payload, idempotent);
+    }
+
+    /**
+     * 发送异步请求并处理返回值
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     */
+    private CompletableFuture<Response> exchangeAsync(final String method, final String p, final JSONObject payload, final boolean idempotent) {
+        return transmitAsync(method, p, payload, idempotent).thenApply(result -> {
+            try {
+                return lazyDecoding ? result.toLazyResponse() : toResponse(result.toJSON());
+            } catch (ChatbotException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 异步发送请求，返回原始的响应
+     * 限流、舱壁隔离和并发限制不等待，没有额度或者熔断器打开时直接返回失败的 Future；额度在重试结束之后释放
+     *
+     * @param method
+     * @param p          已经添加 sdklang 参数的 path
+     * @param payload
+     * @param idempotent
+     * @return
+     */
+    private CompletableFuture<TransportResponse> transmitAsync(final String method, final String p, final JSONObject payload, final boolean idempotent) {
+        if (StringUtils.equals(method, "POST") && StringUtils.startsWith(p, "/asr/recognize")) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transmit(method, p, payload, idempotent);
+                } catch (Exception e) {
+                    throw asCompletionException(e);
+                }
+            }, SdkExecutors.shared());
+        }
+
+        final RateLimiter limiter = rateLimiter;
+        if (limiter != null && !limiter.tryAcquire(RateLimiter.kindOf(method, p))) {
+            return failedFuture(new RateLimitedException("Rate limited, " + RateLimiter.kindOf(method, p)));
+        }
+
+        final Bulkhead bh = bulkhead;
+        final Bulkhead.Category category = Bulkhead.categoryOf(method, p);
+        if (bh != null && !bh.tryAcquire(category)) {
+            return failedFuture(new BulkheadFullException("Bulkhead " + category + " is full."));
+        }
+
+        final ConcurrencyLimiter cl = concurrencyLimiter;
+        if (cl != null && !cl.tryAcquire()) {
+            if (bh != null) {
+                bh.release(category);
+            }
+            return failedFuture(new ConcurrencyLimitException("Concurrency limit " + cl.getLimit() + " is reached."));
+        }
+
+        final CircuitBreaker breaker = circuitBreaker;
+        final String key = breaker != null ? CircuitBreaker.key(method, p) : null;
+        if (breaker != null) {
+            try {
+                breaker.acquire(key);
+            } catch (CircuitBreakerOpenException e) {
+                if (cl != null) {
+                    cl.release();
+                }
+                if (bh != null) {
+                    bh.release(category);
+                }
+                return failedFuture(e);
+            }
+        }
 
-    public String getHostname() {
-        return hostname;
+        // 和同步的 send 一样，每次发送之后更新限流器
+        final HedgePolicy hedge = hedgePolicy != null && isHedged(method, p) ? hedgePolicy : null;
+        final Supplier<CompletableFuture<TransportResponse>> send = hedge == null ? () -> sendAsync(method, p, payload) :
+                () -> hedge.executeAsync(() -> sendAsync(method, p, payload), () -> hedgeAsync(method, p, payload));
+        final Supplier<CompletableFuture<TransportResponse>> attempt = limiter == null ? send :
+                () -> send.get().thenApply(result -> {
+                    limiter.onResponse(RateLimiter.kindOf(method, p), result);
+                    return result;
+                });
+        final RetryPolicy retry = retryPolicy;
+        final CompletableFuture<TransportResponse> sent = retry != null ?
+                retry.executeAsync(attempt, idempotent || !StringUtils.equals(method, "POST")) : attempt.get();
+
+        return sent.handle((result, err) -> {
+            if (breaker != null) {
+                if (err != null) {
+                    breaker.onError(key, err);
+                } else if (result.getStatus() >= 500 || result.getStatus() == 429) {
+                    breaker.onFailure(key);
+                } else {
+                    breaker.onSuccess(key);
+                }
+            }
+            if (cl != null) {
+                cl.release();
+            }
+            if (bh != null) {
+                bh.release(category);
+            }
+            if (err != null) {
+                throw asCompletionException(err);
+            }
+            return result;
+        });
     }
 
-    public int getPort() {
-        return port;
-    }
 
-    public String getBaseUrl() {
-        return baseUrl;
+    /**
+     * 核心访问接口，异步版本
+     *
+     * @param method PUT, POST, GET, DELETE
+     * @param path   /faq/xxx
+     * @return
+     */
+    public CompletableFuture<Response> commandAsync(final String method, final String path) {
+        return commandAsync(method, path, null);
     }
 
     /**
-     * 生成认证信息
+     * 核心访问接口，在指定的线程池中执行同步请求
      *
-     * @param method
-     * @param path
+     * @param method   PUT, POST, GET, DELETE
+     * @param path     /faq/xxx
+     * @param payload  JSONObject body
+     * @param executor 执行请求的线程池
      * @return
-     * @throws Exception
      */
-    private HashMap<String, String> auth(final String method, final String path) throws Exception {
-        HashMap<String, String> x = new HashMap<>();
-        if (this.credentials != null) {
-            String token = this.credentials.generate(method, path);
-            x.put("Authorization", token);
-        }
-        return x;
+    public CompletableFuture<Response> commandAsync(final String method, final String path, final JSONObject payload, final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return command(method, path, payload);
+            } catch (ChatbotException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
     }
 
     /**
-     * 核心访问接口
+     * 将服务端返回值转化为 Response
      *
-     * @param method  PUT, POST, GET, DELETE, etc.
-     * @param path    /faq/xxx
-     * @param payload JSONObject body
+     * @param result
      * @return
      * @throws ChatbotException
      */
-    public Response command(final String method, String path, final JSONObject payload) throws ChatbotException {
-        /**
-         * 准备参数
-         */
-        StringBuffer url = getUrlPrefix();
-        StringBuffer fullPath = getPathPrefix();
-
-        // 自动添加 sdklang 参数
-        if (StringUtils.isNotBlank(path)) {
-            String[] pairs = path.split("&");
-            if (pairs.length > 1 || path.contains("?")) {
-                path += "&sdklang=java";
-            } else {
-                path += "?sdklang=java";
-            }
-        } else {
-            path = "/?sdklang=java";
-        }
-
-        if (StringUtils.isNotBlank(path)) {
-            url.append(path);
-            fullPath.append(path);
-        }
-
-        /**
-         * 发送请求
-         */
-        JSONObject result;
-        try {
-            switch (method) {
-                case "GET":
-                    result = RestAPI.get(url.toString(), null, auth(method, fullPath.toString()));
-                    break;
-                case "POST":
-                    if (StringUtils.startsWith(path, "/asr/recognize")) {
-                        Optional<JSONObject> resultOpt = postAsrRecognize(url.toString(), payload, null, auth(method, fullPath.toString()));
-                        if (resultOpt.isPresent()) {
-                            result = resultOpt.get();
-                        } else {
-                            throw new ChatbotException("Empty response from ASR Api.");
-                        }
-                    } else {
-                        result = RestAPI.post(url.toString(), payload, null, auth(method, fullPath.toString()));
-                    }
-                    break;
-                case "DELETE":
-                    if (payload != null) {
-                        result = RestAPI.delete(url.toString(), auth(method, fullPath.toString()), payload);
-                    } else {
-                        result = RestAPI.delete(url.toString(), auth(method, fullPath.toString()));
-                    }
-                    break;
-                case "PUT":
-                    result = RestAPI.put(url.toString(), payload, null, auth(method, fullPath.toString()));
-                    break;
-                default:
-                    throw new ChatbotException("Invalid requested method, only GET, POST, DELETE, PUT are supported.");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new ChatbotException(e.toString());
-        }
-
-        /**
-         * 处理返回值
-         */
+    private Response toResponse(final JSONObject result) throws ChatbotException {
         purge(result);
         Response resp = new Response();
         resp.setRc(result.getInt("rc"));
@@ -270,16 +1256,15 @@ public class Chatbot {
      * @param headers
      * @return
      */
-    private Optional<JSONObject> postAsrRecognize(final String url, final JSONObject payload, final String query, final HashMap<String, String> headers) throws ChatbotException {
+    private TransportResponse postAsrRecognize(final String url, final JSONObject payload, final String query, final HashMap<String, String> headers) throws ChatbotException {
         if (payload.has("filepath") && FileUtil.exists(payload.getString("filepath"))) {
-            kong.unirest.json.JSONObject obj = Unirest.post(url)
-                    .header("Authorization", headers.containsKey("Authorization") ? headers.get("Authorization") : "")
-                    .field("file", new File(payload.getString("filepath")))
-                    .field("nbest", Integer.toString((payload.has("nbest") ? payload.getInt("nbest") : ASR_DEFAULT_NBEST)))
-                    .field("pos", Boolean.toString(payload.has("pos") ? payload.getBoolean("pos") : ASR_DEFAULT_POS))
-                    .asJson().getBody().getObject();
-
-            return Optional.of(new JSONObject(obj.toString()));
+            HashMap<String, String> h = new HashMap<>();
+            h.put("Authorization", headers.containsKey("Authorization") ? headers.get("Authorization") : "");
+            HashMap<String, String> fields = new HashMap<>();
+            fields.put("nbest", Integer.toString((payload.has("nbest") ? payload.getInt("nbest") : ASR_DEFAULT_NBEST)));
+            fields.put("pos", Boolean.toString(payload.has("pos") ? payload.getBoolean("pos") : ASR_DEFAULT_POS));
+
+            return transport.upload(url, h, new File(payload.getString("filepath")), fields);
         } else if (payload.has("type") && StringUtils.equalsIgnoreCase(payload.getString("type"), "base64")) {
             if (payload.has("data")) {
                 String data = payload.getString("data");
@@ -291,7 +1276,7 @@ public class Chatbot {
                     if (!payload.has("pos"))
                         payload.put("pos", ASR_DEFAULT_POS);
 
-                    return Optional.of(RestAPI.post(url, payload, null, headers));
+                    return transport.request("POST", url, payload, headers);
                 } else {
                     throw new ChatbotException("Empty data for ASR Api, base64 data is required for base64 type request.");
                 }
@@ -379,15 +1364,49 @@ public class Chatbot {
     public JSONObject conversation(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) throws ChatbotException {
         v(this.clientId, userId, textMessage);
 
+        Response resp = command("POST", "/conversation/query", conversationBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold));
+        return resp.toJSON();
+    }
+
+    /**
+     * 和机器人对话，异步版本
+     *
+     * @param userId      用户唯一标识
+     * @param textMessage 文字消息
+     * @return
+     */
+    public CompletableFuture<JSONObject> conversationAsync(final String userId, final String textMessage) {
+        return conversationAsync(userId, textMessage, 0.8, 0.6);
+    }
+
+    /**
+     * 和机器人对话，异步版本
+     *
+     * @param userId
+     * @param textMessage
+     * @param faqBestReplyThreshold
+     * @param faqSuggReplyThreshold
+     * @return
+     */
+    public CompletableFuture<JSONObject> conversationAsync(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) {
+        try {
+            v(this.clientId, userId, textMessage);
+        } catch (ChatbotException e) {
+            return failedFuture(e);
+        }
+
+        return commandAsync("POST", "/conversation/query", conversationBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold))
+                .thenApply(Response::toJSON);
+    }
+
+    private JSONObject conversationBody(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) {
         JSONObject body = new JSONObject();
         body.put("fromUserId", userId);
         body.put("textMessage", textMessage);
         body.put("isDebug", false);
         body.put("faqBestReplyThreshold", faqBestReplyThreshold);
         body.put("faqSuggReplyThreshold", faqSuggReplyThreshold);
-
-        Response resp = command("POST", "/conversation/query", body);
-        return resp.toJSON();
+        return body;
     }
 
     /**
@@ -406,6 +1425,8 @@ public class Chatbot {
 
     /**
      * 检索知识库
+     * 设置了知识库查询缓存时，先读取缓存，参考 {@link FaqCache}
+     * 查询不修改服务端状态，按幂等请求处理，设置了重试策略时自动重试
      *
      * @param userId
      * @param textMessage
@@ -417,16 +1438,64 @@ public class Chatbot {
      */
     public JSONObject faq(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) throws ChatbotException {
         v(this.clientId, userId, textMessage);
+
+        final FaqCache cache = faqCache;
+        if (cache != null) {
+            return cache.get(FaqCache.key(textMessage, faqBestReplyThreshold, faqSuggReplyThreshold),
+                    () -> command("POST", "/faq/query", faqBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold), true).toJSON());
+        }
+
+        Response resp = command("POST", "/faq/query", faqBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold), true);
+
+        return resp.toJSON();
+    }
+
+    /**
+     * 检索知识库，异步版本
+     *
+     * @param userId      用户唯一标识
+     * @param textMessage 文字消息
+     * @return
+     */
+    public CompletableFuture<JSONObject> faqAsync(final String userId, final String textMessage) {
+        return faqAsync(userId, textMessage, 0.8, 0.6);
+    }
+
+    /**
+     * 检索知识库，异步版本
+     * 和 {@link #faq(String, String, double, double)} 一样读取知识库查询缓存，按幂等请求处理
+     *
+     * @param userId
+     * @param textMessage
+     * @param faqBestReplyThreshold
+     * @param faqSuggReplyThreshold
+     * @return
+     */
+    public CompletableFuture<JSONObject> faqAsync(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) {
+        try {
+            v(this.clientId, userId, textMessage);
+        } catch (ChatbotException e) {
+            return failedFuture(e);
+        }
+
+        final FaqCache cache = faqCache;
+        if (cache != null) {
+            return cache.getAsync(FaqCache.key(textMessage, faqBestReplyThreshold, faqSuggReplyThreshold),
+                    () -> commandAsync("POST", "/faq/query", faqBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold), true).thenApply(Response::toJSON));
+        }
+
+        return commandAsync("POST", "/faq/query", faqBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold), true)
+                .thenApply(Response::toJSON);
+    }
+
+    private JSONObject faqBody(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) {
         JSONObject body = new JSONObject();
         body.put("fromUserId", userId);
         body.put("query", textMessage);
         body.put("isDebug", false);
         body.put("faqBestReplyThreshold", faqBestReplyThreshold);
         body.put("faqSuggReplyThreshold", faqSuggReplyThreshold);
-
-        Response resp = command("POST", "/faq/query", body);
-
-        return resp.toJSON();
+        return body;
     }
 
     /**
@@ -450,25 +1519,12 @@ public class Chatbot {
             pageSize = 30;
         }
 
-        StringBuffer path = new StringBuffer();
-        path.append("/faq/database?page=");
-        path.append(page);
-        path.append("&limit=");
-        path.append(pageSize);
-
-        // 检索条件
-        if (StringUtils.isNotBlank(query)) {
-            path.append("&q=");
-            path.append(URLEncoder.encode(query, "UTF-8"));
-        }
-
-        // 分类
-        if (StringUtils.isNotBlank(category)) {
-            path.append("&category=");
-            path.append(category);
-        }
+        // 检索条件和分类为空时省略
+        String path = FAQ_LIST.expand(page, pageSize,
+                StringUtils.isNotBlank(query) ? query : null,
+                StringUtils.isNotBlank(category) ? category : null);
 
-        Response resp = command("GET", path.toString());
+        Response resp = command("GET", path);
         return resp.toJSON();
     }
 
@@ -907,6 +1963,36 @@ public class Chatbot {
      * @deprecated use `Chatbot#command` API instead, removed in 2020-10
      */
     public JSONObject intent(final String sessionId, final String userId, final String textMessage) throws ChatbotException {
+        JSONObject body = intentBody(sessionId, userId, textMessage);
+
+        StringBuffer path = new StringBuffer();
+        path.append("/clause/prover/chat");
+
+        Response resp = command("POST", path.toString(), body);
+        return resp.toJSON();
+    }
+
+    /**
+     * 进行意图识别对话，异步版本
+     *
+     * @param sessionId   会话ID
+     * @param userId      用户唯一标识，需要和创建会话时保持一致，否则会话会错乱
+     * @param textMessage 消息文本内容
+     * @return
+     */
+    public CompletableFuture<JSONObject> intentAsync(final String sessionId, final String userId, final String textMessage) {
+        JSONObject body;
+        try {
+            body = intentBody(sessionId, userId, textMessage);
+        } catch (ChatbotException e) {
+            return failedFuture(e);
+        }
+
+        return commandAsync("POST", "/clause/prover/chat", body)
+                .thenApply(Response::toJSON);
+    }
+
+    private JSONObject intentBody(final String sessionId, final String userId, final String textMessage) throws ChatbotException {
         if (StringUtils.isBlank(sessionId)) {
             throw new ChatbotException("[intent] 不合法的会话ID。");
         }
@@ -927,12 +2013,123 @@ public class Chatbot {
         message.put("textMessage", textMessage);
         body.put("session", session);
         body.put("message", message);
+        return body;
+    }
 
-        StringBuffer path = new StringBuffer();
-        path.append("/clause/prover/chat");
+    /**
+     * 和机器人对话，返回类型化的回复，直接从响应体解码，不生成 JSONObject
+     *
+     * @param userId      用户唯一标识
+     * @param textMessage 文字消息
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public ConversationReply conversationReply(final String userId, final String textMessage) throws ChatbotException {
+        return conversationReply(userId, textMessage, 0.8, 0.6);
+    }
 
-        Response resp = command("POST", path.toString(), body);
-        return resp.toJSON();
+    /**
+     * 和机器人对话，返回类型化的回复，直接从响应体解码，不生成 JSONObject
+     *
+     * @param userId
+     * @param textMessage
+     * @param faqBestReplyThreshold
+     * @param faqSuggReplyThreshold
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public ConversationReply conversationReply(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) throws ChatbotException {
+        v(this.clientId, userId, textMessage);
+        byte[] body = fetch("POST", "/conversation/query", conversationBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold));
+        return ResultDecoder.decode(body, ConversationReply::read);
+    }
+
+    /**
+     * 检索知识库，返回按相似度排序的问答对
+     *
+     * @param userId      用户唯一标识
+     * @param textMessage 文字消息
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public List<FaqDoc> faqHits(final String userId, final String textMessage) throws ChatbotException {
+        return faqHits(userId, textMessage, 0.8, 0.6);
+    }
+
+    /**
+     * 检索知识库，返回按相似度排序的问答对
+     * 查询不修改服务端状态，和 {@link #faq(String, String)} 一样按幂等请求处理，设置了重试策略时自动重试
+     *
+     * @param userId
+     * @param textMessage
+     * @param faqBestReplyThreshold
+     * @param faqSuggReplyThreshold
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public List<FaqDoc> faqHits(final String userId, final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) throws ChatbotException {
+        v(this.clientId, userId, textMessage);
+        byte[] body = fetch("POST", "/faq/query", faqBody(userId, textMessage, faqBestReplyThreshold, faqSuggReplyThreshold), true);
+        return ResultDecoder.decodeList(body, FaqDoc::read);
+    }
+
+    /**
+     * 知识库一条记录的详情
+     *
+     * @param id 问答对唯一标识
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public FaqDoc faqDoc(final String id) throws ChatbotException {
+        if (StringUtils.isBlank(id)) {
+            throw new ChatbotException("Invalid id");
+        }
+        return ResultDecoder.decode(fetch("GET", FAQ_DETAIL.expand(id), null), FaqDoc::read);
+    }
+
+    /**
+     * 查询知识库列表
+     *
+     * @param query    查询语句，可以为 null
+     * @param category 分类，可以为 null
+     * @param page     页码，默认为1
+     * @param pageSize 每页数据条数，默认 30
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public Page<FaqDoc> faqPage(final String query, final String category, final int page, final int pageSize) throws ChatbotException {
+        String path = FAQ_LIST.expand(page == 0 ? 1 : page, pageSize == 0 ? 30 : pageSize,
+                StringUtils.isNotBlank(query) ? query : null,
+                StringUtils.isNotBlank(category) ? category : null);
+        return ResultDecoder.decodePage(fetch("GET", path, null), FaqDoc::read);
+    }
+
+    /**
+     * 意图识别会话的状态
+     *
+     * @param sessionId 会话ID
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public IntentSession intentSessionState(final String sessionId) throws ChatbotException {
+        if (StringUtils.isBlank(sessionId)) {
+            throw new ChatbotException("[intent] 不合法的会话ID。");
+        }
+        return ResultDecoder.decode(fetch("GET", INTENT_SESSION.expand(sessionId), null), IntentSession::read);
+    }
+
+    /**
+     * 进行意图识别对话，返回类型化的回复
+     *
+     * @param sessionId   会话ID
+     * @param userId      用户唯一标识，需要和创建会话时保持一致，否则会话会错乱
+     * @param textMessage 消息文本内容
+     * @return
+     * @throws ChatbotException 服务端返回错误时为 {@link ResultException}
+     */
+    public IntentReply intentReply(final String sessionId, final String userId, final String textMessage) throws ChatbotException {
+        byte[] body = fetch("POST", "/clause/prover/chat", intentBody(sessionId, userId, textMessage));
+        return ResultDecoder.decode(body, IntentReply::read);
     }
 
 
@@ -1101,13 +2298,51 @@ public class Chatbot {
     }
 
     /**
-     * 获得Url的固定前缀
+     * 自动添加 sdklang 参数
      *
+     * @param path
      * @return
      */
-    private StringBuffer getUrlPrefix() {
-        StringBuffer sb = new StringBuffer();
-        return sb.append(this.getBaseUrl()).append("/").append(this.clientId);
+    private static String withSdkLang(final String path) {
+        if (StringUtils.isNotBlank(path)) {
+            if (path.indexOf('?') >= 0 || path.indexOf('&') >= 0) {
+                return path.concat("&sdklang=java");
+            } else {
+                return path.concat("?sdklang=java");
+            }
+        } else {
+            return "/?sdklang=java";
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(final Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 异步请求的异常统一为 ChatbotException，和同步接口保持一致
+     *
+     * @param err
+     * @return
+     */
+    private static CompletionException asCompletionException(final Throwable err) {
+        Throwable cause = (err instanceof CompletionException && err.getCause() != null) ? err.getCause() : err;
+        if (cause instanceof ChatbotException) {
+            return new CompletionException(cause);
+        }
+        return new CompletionException(new ChatbotException(cause.toString()));
+    }
+
+    /**
+     * 获得Url的固定前缀，在创建实例时生成
+     *
+     * @param endpoint 服务地址，为 null 时使用 baseUrl
+     * @return
+     */
+    private String urlPrefix(final EndpointRouter.Endpoint endpoint) {
+        return endpoint != null ? endpointPrefixes.get(endpoint) : urlPrefix;
     }
 
     /**
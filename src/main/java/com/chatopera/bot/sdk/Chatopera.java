@@ -19,13 +19,17 @@ import com.chatopera.bot.sdk.basics.Constants;
 import com.chatopera.bot.sdk.basics.Response;
 import com.chatopera.bot.exception.ChatbotException;
 import com.chatopera.bot.sdk.basics.RestAPI;
+import com.chatopera.bot.sdk.basics.Transport;
+import com.chatopera.bot.sdk.basics.Warmup;
+import com.chatopera.bot.utils.Logger;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Chatopera 高级管理
@@ -39,6 +43,8 @@ public class Chatopera {
     private int port;
     private String baseUrl;
     private String accessToken;
+    private Map<String, String> authHeaders;   // 请求头在创建实例时生成，不可变
+    private Transport transport = RestAPI.getDefault();
 
     // 不支持定义空实例
     private Chatopera() {
@@ -58,6 +64,7 @@ public class Chatopera {
 
         if (StringUtils.isNotBlank(accessToken)) {
             this.accessToken = StringUtils.trim(accessToken);
+            this.authHeaders = Collections.singletonMap("Authorization", "Bearer " + this.accessToken);
         } else {
             throw new ChatbotException("Invalid access token.");
         }
@@ -74,6 +81,20 @@ public class Chatopera {
         this(accessToken, Constants.defaultBaseUrl);
     }
 
+    /**
+     * 使用指定的传输层，比如独立的连接池，避免批量管理任务占用查询请求的连接
+     *
+     * @param accessToken
+     * @param baseUrl
+     * @param transport
+     * @throws ChatbotException
+     * @throws MalformedURLException
+     */
+    public Chatopera(final String accessToken, final String baseUrl, final Transport transport) throws ChatbotException, MalformedURLException {
+        this(accessToken, baseUrl);
+        setTransport(transport);
+    }
+
     /**
      * 分析URL信息
      *
@@ -110,21 +131,15 @@ public class Chatopera {
         return baseUrl;
     }
 
-    /**
-     * 生成认证信息
-     *
-     * @param accessToken
-     * @return
-     * @throws Exception
-     */
-    private HashMap<String, String> auth(final String accessToken) {
-        System.out.println("[auth] accessToken " + accessToken);
-        HashMap<String, String> x = new HashMap<>();
-        StringBuffer sb = new StringBuffer();
-        sb.append("Bearer ");
-        sb.append(accessToken);
-        x.put("Authorization", sb.toString());
-        return x;
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(final Transport transport) throws ChatbotException {
+        if (transport == null) {
+            throw new ChatbotException("Transport should not be null.");
+        }
+        this.transport = transport;
     }
 
     /**
@@ -158,6 +173,10 @@ public class Chatopera {
             url.append(path);
         }
 
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("[command] " + method + " " + url);
+        }
+
         /**
          * 发送请求
          */
@@ -165,16 +184,16 @@ public class Chatopera {
         try {
             switch (method) {
                 case "GET":
-                    result = RestAPI.get(url.toString(), null, auth(this.accessToken));
+                    result = transport.request(method, url.toString(), null, authHeaders).toJSON();
                     break;
                 case "POST":
-                    result = RestAPI.post(url.toString(), payload, null, auth(this.accessToken));
+                    result = transport.request(method, url.toString(), payload, authHeaders).toJSON();
                     break;
                 case "DELETE":
-                    result = RestAPI.delete(url.toString(), auth(this.accessToken));
+                    result = transport.request(method, url.toString(), null, authHeaders).toJSON();
                     break;
                 case "PUT":
-                    result = RestAPI.put(url.toString(), payload, null, auth(this.accessToken));
+                    result = transport.request(method, url.toString(), payload, authHeaders).toJSON();
                     break;
                 default:
                     throw new ChatbotException("Invalid requested method, only GET, POST, DELETE, PUT are supported.");
@@ -216,6 +235,19 @@ public class Chatopera {
         return resp;
     }
 
+    /**
+     * 预热连接池，同时发送 connections 个 GET / 请求并等待返回
+     * 可以在就绪检查中根据返回值判断连接池是否就绪
+     *
+     * @param connections 预热的连接数
+     * @return 成功返回的请求数
+     * @throws ChatbotException
+     */
+    public int warmup(final int connections) throws ChatbotException {
+        final String url = getUrlPrefix().append("/?sdklang=java").toString();
+        return Warmup.run(connections, () -> transport.request("GET", url, null, authHeaders));
+    }
+
     /**
      * 核心访问接口
      *
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk;
+
+import com.chatopera.bot.sdk.basics.SdkExecutors;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * 按用户保序的对话分发器
+ * 服务端按用户保存对话状态，同一用户的并发请求可能乱序；分发器按 userId 的哈希把消息分配到串行的通道（lane）
+ * 同一用户的消息依次执行，不同用户的消息在不同通道上并行
+ * 请求使用 Chatbot#conversationAsync，经过准入队列、请求合并、熔断器和重试策略，等待回复时不占用线程
+ * 消息完成后，同一通道的下一条消息在 executor 中开始，不占用 HTTP 客户端的 IO 线程
+ */
+public class ConversationDispatcher {
+
+    private final BiFunction<String, String, CompletableFuture<JSONObject>> conversation;
+    private final Executor executor;
+    private final Lane[] lanes;
+
+    /**
+     * 通道数为 CPU 核数的 8 倍
+     *
+     * @param chatbot
+     */
+    public ConversationDispatcher(final Chatbot chatbot) {
+        this(chatbot, Runtime.getRuntime().availableProcessors() * 8);
+    }
+
+    /**
+     * 使用 SdkExecutors 的线程池
+     *
+     * @param chatbot
+     * @param lanes   通道数，也是最大并发数
+     */
+    public ConversationDispatcher(final Chatbot chatbot, final int lanes) {
+        this(chatbot, lanes, SdkExecutors.shared());
+    }
+
+    /**
+     * @param chatbot
+     * @param lanes    通道数，也是最大并发数
+     * @param executor 开始通道后续消息的线程池
+     */
+    public ConversationDispatcher(final Chatbot chatbot, final int lanes, final Executor executor) {
+        this(chatbot::conversationAsync, lanes, executor);
+    }
+
+    ConversationDispatcher(final BiFunction<String, String, CompletableFuture<JSONObject>> conversation, final int lanes, final Executor executor) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("lanes should be positive.");
+        }
+        this.conversation = conversation;
+        this.executor = executor;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * 发送对话消息，在该用户之前的消息都返回后执行
+     *
+     * @param userId      用户唯一标识
+     * @param textMessage 文字消息
+     * @return 和 Chatbot#conversation 相同
+     */
+    public CompletableFuture<JSONObject> conversation(final String userId, final String textMessage) {
+        final CompletableFuture<JSONObject> result = new CompletableFuture<>();
+        lanes[laneOf(userId)].submit(new Task(userId, textMessage, result));
+        return result;
+    }
+
+    /**
+     * 用户对应的通道
+     *
+     * @param userId
+     * @return
+     */
+    public int laneOf(final String userId) {
+        int h = userId == null ? 0 : userId.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % lanes.length;
+    }
+
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * 通道中排队和执行中的消息数
+     *
+     * @param lane
+     * @return
+     */
+    public int getQueueDepth(final int lane) {
+        return lanes[lane].depth.get();
+    }
+
+    /**
+     * 通道中消息的平均等待时间，从提交到开始执行
+     *
+     * @param lane
+     * @return 毫秒
+     */
+    public double getAverageWaitTime(final int lane) {
+        Lane l = lanes[lane];
+        long n = l.started.sum();
+        return n == 0 ? 0 : (double) l.waitNanos.sum() / n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 通道中消息的最长等待时间
+     *
+     * @param lane
+     * @return 毫秒
+     */
+    public double getMaxWaitTime(final int lane) {
+        return (double) lanes[lane].maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 通道中已经开始执行的消息数
+     *
+     * @param lane
+     * @return
+     */
+    public long getStarted(final int lane) {
+        return lanes[lane].started.sum();
+    }
+
+    /**
+     * 排队中的消息
+     */
+    private static class Task {
+        private final String userId;
+        private final String textMessage;
+        private final CompletableFuture<JSONObject> result;
+        private final long submitted = System.nanoTime();
+
+        Task(final String userId, final String textMessage, final CompletableFuture<JSONObject> result) {
+            this.userId = userId;
+            this.textMessage = textMessage;
+            this.result = result;
+        }
+    }
+
+    /**
+     * 串行通道，同一时间只有一条消息在执行
+     * depth 从 0 变为 1 的提交者负责执行，消息完成时在 executor 中继续执行下一条；同步完成的消息在循环中处理，不会递归
+     */
+    private class Lane {
+        private final ConcurrentLinkedQueue<Task> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        void submit(final Task task) {
+            queue.offer(task);
+            if (depth.getAndIncrement() == 0) {
+                drain();
+            }
+        }
+
+        private void drain() {
+            do {
+                final Task task = queue.poll();
+                recordWait(System.nanoTime() - task.submitted);
+
+                CompletableFuture<JSONObject> future;
+                try {
+                    future = conversation.apply(task.userId, task.textMessage);
+                } catch (RuntimeException e) {
+                    future = new CompletableFuture<>();
+                    future.completeExceptionally(e);
+                }
+
+                if (!future.isDone()) {
+                    future.whenCompleteAsync((r, e) -> {
+                        complete(task, r, e);
+                        if (depth.decrementAndGet() > 0) {
+                            drain();
+                        }
+                    }, executor);
+                    return;
+                }
+                future.whenComplete((r, e) -> complete(task, r, e));
+            } while (depth.decrementAndGet() > 0);
+        }
+
+        private void complete(final Task task, final JSONObject r, final Throwable e) {
+            if (e != null) {
+                task.result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                task.result.complete(r);
+            }
+        }
+
+        private void recordWait(final long nanos) {
+            started.increment();
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
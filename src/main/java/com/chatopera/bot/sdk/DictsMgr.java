@@ -45,6 +45,15 @@ public class DictsMgr {
         this.chatbot = new Chatbot(clientId, clientSecret);
     }
 
+    /**
+     * 使用已经创建的聊天机器人实例，共用其连接池等配置
+     *
+     * @param chatbot
+     */
+    public DictsMgr(final Chatbot chatbot) {
+        this.chatbot = chatbot;
+    }
+
     /**
      * Get Custom Vocab Dicts by page
      * 支持分页：page 第几页，从 1 开始；limit 每页数据条数
@@ -40,6 +40,15 @@ public class FAQMgr {
         this.chatbot = new Chatbot(clientId, clientSecret);
     }
 
+    /**
+     * 使用已经创建的聊天机器人实例，共用其连接池等配置
+     *
+     * @param chatbot
+     */
+    public FAQMgr(final Chatbot chatbot) {
+        this.chatbot = chatbot;
+    }
+
     /**
      * Get QnA Pairs by page
      * 支持分页：page 第几页，从 1 开始；limit 每页数据条数
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.sdk.basics.PathTemplate;
+import com.chatopera.bot.sdk.basics.Response;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 预编译的请求，方法和 Path 模版只解析一次，每次请求用一个 StringBuilder 生成 Path
+ * 通过 {@link Chatbot#prepare(String, String)} 创建，线程安全，可以在多个线程中复用
+ * <p>
+ * PreparedCommand extend = chatbot.prepare("GET", "/faq/database/{id}/extend");
+ * Response resp = extend.execute(null, docId);
+ */
+public class PreparedCommand {
+    private final static String SDK_LANG = "sdklang=java";
+
+    private final Chatbot chatbot;
+    private final String method;
+    private final PathTemplate template;
+    private final boolean idempotent;
+
+    PreparedCommand(final Chatbot chatbot, final String method, final PathTemplate template, final boolean idempotent) {
+        this.chatbot = chatbot;
+        this.method = method;
+        this.template = template;
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * 展开 Path 模版并添加 sdklang 参数
+     *
+     * @param args 变量的值，按在模版中出现的顺序
+     * @return
+     * @throws ChatbotException
+     */
+    public String path(final Object... args) throws ChatbotException {
+        StringBuilder sb = new StringBuilder(template.estimate() + SDK_LANG.length() + 1);
+        boolean query = template.expand(sb, args);
+        return sb.append(query ? '&' : '?').append(SDK_LANG).toString();
+    }
+
+    /**
+     * 发送请求，经过 Chatbot 上设置的限流、熔断、重试等策略
+     *
+     * @param payload JSONObject body，没有时为 null
+     * @param args    变量的值，按在模版中出现的顺序
+     * @return
+     * @throws ChatbotException
+     */
+    public Response execute(final JSONObject payload, final Object... args) throws ChatbotException {
+        return chatbot.invoke(method, path(args), payload, idempotent);
+    }
+
+    /**
+     * 发送请求，异步版本
+     *
+     * @param payload JSONObject body，没有时为 null
+     * @param args    变量的值，按在模版中出现的顺序
+     * @return
+     */
+    public CompletableFuture<Response> executeAsync(final JSONObject payload, final Object... args) {
+        final String p;
+        try {
+            p = path(args);
+        } catch (ChatbotException e) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return chatbot.invokeAsync(method, p, payload, idempotent);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public PathTemplate getTemplate() {
+        return template;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
@@ -46,6 +46,15 @@ public class TrainMgr {
         this.chatbot = new Chatbot(clientId, clientSecret);
     }
 
+    /**
+     * 使用已经创建的聊天机器人实例，共用其连接池等配置
+     *
+     * @param chatbot
+     */
+    public TrainMgr(final Chatbot chatbot) {
+        this.chatbot = chatbot;
+    }
+
     /**
      * Get Chatbot Status
      *
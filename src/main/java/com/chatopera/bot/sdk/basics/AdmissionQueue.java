@@ -0,0 +1,443 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.exception.LoadSheddingException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * 查询请求的准入队列：限制同时执行的请求数，其余请求在有界队列中等待
+ * 队列满时按策略处理：拒绝、丢弃最早的请求、或者降级返回 fallback 的结果
+ * 每个请求有时间预算（timeout），排队后剩余时间小于观测到的服务时间时直接丢弃，不再发送到服务端
+ * 不需要排队的请求总是执行，服务时间的观测值因此能随服务端恢复而下降
+ * 被丢弃的请求抛出 LoadSheddingException；策略为 DEGRADE 且设置了 fallback 时返回 fallback 的结果
+ * 同步和异步请求共用执行位置和等待队列
+ */
+public class AdmissionQueue {
+
+    public enum Policy {
+        REJECT, DROP_OLDEST, DEGRADE
+    }
+
+    private int maxConcurrency = 32;            // 同时执行的请求数
+    private int capacity = 256;                 // 等待队列长度
+    private long timeout = 5000;                // 每个请求的时间预算，毫秒
+    private Policy policy = Policy.REJECT;
+    private BiFunction<String, JSONObject, Response> fallback;  // 降级回复，参数为请求的 path 和 payload
+    private double alpha = 0.2;                 // 服务时间 EWMA 平滑系数
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private int running;
+    private volatile double serviceNanos;       // 只在持有锁时更新
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder degraded = new LongAdder();
+
+    /**
+     * 执行请求，排队等待执行
+     *
+     * @param path    请求的 path，传给 fallback
+     * @param payload 请求的 payload，传给 fallback
+     * @param call    发送请求
+     * @return
+     * @throws ChatbotException 请求被丢弃时为 LoadSheddingException
+     */
+    public Response execute(final String path, final JSONObject payload, final Callable<Response> call) throws ChatbotException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Ticket ticket = new Ticket(deadline, null);
+        final List<Ticket> woken = new ArrayList<>(1);
+
+        lock.lock();
+        try {
+            enter(ticket, woken);
+            while (ticket.state == Ticket.WAITING) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    waiting.remove(ticket);
+                    ticket.state = Ticket.EXPIRED;
+                    break;
+                }
+                try {
+                    ticket.ready.awaitNanos(left);
+                } catch (InterruptedException e) {
+                    if (ticket.state == Ticket.ADMITTED) {
+                        release(woken);
+                    } else {
+                        waiting.remove(ticket);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new ChatbotException("Interrupted when waiting in admission queue.", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+            wake(woken);
+        }
+
+        switch (ticket.state) {
+            case Ticket.REJECTED:
+                rejected.increment();
+                return shed(path, payload, "Admission queue is full.");
+            case Ticket.DROPPED:
+                dropped.increment();
+                return shed(path, payload, "Dropped from admission queue by newer requests.");
+            case Ticket.EXPIRED:
+                expired.increment();
+                return shed(path, payload, "Not enough time budget left to call the server.");
+            default:
+                break;
+        }
+
+        admitted.increment();
+        final long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (ChatbotException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChatbotException(e.toString(), e);
+        } finally {
+            finish(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 执行异步请求，排队时不占用线程；获得执行位置时在释放它的线程中发送，排队超时由 SdkExecutors 的定时器处理
+     *
+     * @param path    请求的 path，传给 fallback
+     * @param payload 请求的 payload，传给 fallback
+     * @param call    发送一次异步请求
+     * @return 请求被丢弃时以 LoadSheddingException 结束
+     */
+    public CompletableFuture<Response> executeAsync(final String path, final JSONObject payload, final Supplier<CompletableFuture<Response>> call) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Ticket ticket = new Ticket(deadline, new CompletableFuture<>());
+        final List<Ticket> woken = new ArrayList<>(1);
+
+        lock.lock();
+        try {
+            enter(ticket, woken);
+            if (ticket.state == Ticket.WAITING) {
+                ticket.timer = SdkExecutors.scheduler().schedule(() -> expire(ticket), deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } else {
+                woken.add(ticket);
+            }
+        } finally {
+            lock.unlock();
+            wake(woken);
+        }
+
+        return ticket.admission.thenCompose(v -> {
+            switch (ticket.state) {
+                case Ticket.REJECTED:
+                    rejected.increment();
+                    return shedAsync(path, payload, "Admission queue is full.");
+                case Ticket.DROPPED:
+                    dropped.increment();
+                    return shedAsync(path, payload, "Dropped from admission queue by newer requests.");
+                case Ticket.EXPIRED:
+                    expired.increment();
+                    return shedAsync(path, payload, "Not enough time budget left to call the server.");
+                default:
+                    break;
+            }
+
+            admitted.increment();
+            final long start = System.nanoTime();
+            CompletableFuture<Response> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            return future.whenComplete((resp, err) -> finish(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * 准入或者排队，队列已满时按策略处理
+     * 调用时持有锁；需要唤醒的异步请求加入 woken，在释放锁之后唤醒
+     */
+    private void enter(final Ticket ticket, final List<Ticket> woken) {
+        if (running < maxConcurrency && waiting.isEmpty()) {
+            running++;
+            ticket.state = Ticket.ADMITTED;
+        } else if (waiting.size() >= capacity && (policy != Policy.DROP_OLDEST || waiting.isEmpty())) {
+            // 在锁外调用 fallback
+            ticket.state = Ticket.REJECTED;
+        } else if (waiting.size() >= capacity) {
+            Ticket oldest = waiting.pollFirst();
+            oldest.state = Ticket.DROPPED;
+            signal(oldest, woken);
+            waiting.addLast(ticket);
+        } else {
+            waiting.addLast(ticket);
+        }
+    }
+
+    /**
+     * 请求结束，在锁内更新服务时间并释放执行位置
+     *
+     * @param elapsed 纳秒
+     */
+    private void finish(final long elapsed) {
+        final List<Ticket> woken = new ArrayList<>(1);
+        lock.lock();
+        try {
+            // 在锁内更新，同时完成的请求不会丢失更新，release 读到的也是最新的值
+            serviceNanos = serviceNanos == 0 ? elapsed : alpha * elapsed + (1 - alpha) * serviceNanos;
+            release(woken);
+        } finally {
+            lock.unlock();
+            wake(woken);
+        }
+    }
+
+    /**
+     * 异步请求排队超时
+     */
+    private void expire(final Ticket ticket) {
+        lock.lock();
+        try {
+            if (ticket.state != Ticket.WAITING) {
+                return;
+            }
+            waiting.remove(ticket);
+            ticket.state = Ticket.EXPIRED;
+        } finally {
+            lock.unlock();
+        }
+        ticket.admission.complete(null);
+    }
+
+    /**
+     * 释放执行位置，准入队首的请求；剩余时间不足的请求直接丢弃，不占用执行位置
+     * 调用时持有锁
+     */
+    private void release(final List<Ticket> woken) {
+        running--;
+        final long now = System.nanoTime();
+        while (running < maxConcurrency && !waiting.isEmpty()) {
+            Ticket next = waiting.pollFirst();
+            if (next.deadline - now < serviceNanos) {
+                next.state = Ticket.EXPIRED;
+            } else {
+                next.state = Ticket.ADMITTED;
+                running++;
+            }
+            signal(next, woken);
+        }
+    }
+
+    /**
+     * 同步请求直接唤醒等待的线程，异步请求在释放锁之后唤醒，避免在锁内发送请求或者调用 fallback
+     * 调用时持有锁
+     */
+    private static void signal(final Ticket ticket, final List<Ticket> woken) {
+        if (ticket.admission == null) {
+            ticket.ready.signal();
+        } else {
+            woken.add(ticket);
+        }
+    }
+
+    private static void wake(final List<Ticket> woken) {
+        for (Ticket ticket : woken) {
+            if (ticket.timer != null) {
+                ticket.timer.cancel(false);
+            }
+            ticket.admission.complete(null);
+        }
+    }
+
+    private Response shed(final String path, final JSONObject payload, final String reason) throws LoadSheddingException {
+        if (policy == Policy.DEGRADE && fallback != null) {
+            degraded.increment();
+            return fallback.apply(path, payload);
+        }
+        throw new LoadSheddingException(reason);
+    }
+
+    private CompletableFuture<Response> shedAsync(final String path, final JSONObject payload, final String reason) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            future.complete(shed(path, payload, reason));
+        } catch (RuntimeException | LoadSheddingException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private class Ticket {
+        private final static int WAITING = 0;
+        private final static int ADMITTED = 1;
+        private final static int DROPPED = 2;
+        private final static int EXPIRED = 3;
+        private final static int REJECTED = 4;
+
+        private final long deadline;
+        private final Condition ready = lock.newCondition();
+        private final CompletableFuture<Void> admission;     // 异步请求获得结果时完成，同步请求为 null
+        private ScheduledFuture<?> timer;                    // 异步请求的排队超时
+        private int state = WAITING;
+
+        Ticket(final long deadline, final CompletableFuture<Void> admission) {
+            this.deadline = deadline;
+            this.admission = admission;
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 设置每个请求的时间预算，包括排队和执行
+     *
+     * @param timeout 毫秒
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public BiFunction<String, JSONObject, Response> getFallback() {
+        return fallback;
+    }
+
+    /**
+     * 设置降级回复，策略为 DEGRADE 时被丢弃的请求返回 fallback 的结果
+     *
+     * @param fallback 参数为请求的 path 和 payload，比如根据 payload 中的 query 返回缓存的回复
+     */
+    public void setFallback(BiFunction<String, JSONObject, Response> fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * 观测到的服务时间，EWMA
+     *
+     * @return 毫秒
+     */
+    public double getServiceTime() {
+        return serviceNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 正在执行的请求数
+     *
+     * @return
+     */
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * 队列已满被拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 被更新的请求挤出队列的请求数
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 剩余时间不足被丢弃的请求数
+     *
+     * @return
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * 返回降级回复的次数
+     *
+     * @return
+     */
+    public long getDegraded() {
+        return degraded.sum();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.BulkheadFullException;
+import com.chatopera.bot.exception.ChatbotException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.EnumMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 舱壁隔离，按操作类型分别限制并发数和等待队列，避免后台任务占满连接和线程，影响用户查询
+ * 类型：查询（对话、知识库查询、意图识别）、后台读（GET）、后台写（其它）、语音识别
+ * 限制可以随时通过 setLimit 调整，正在执行的请求不受影响，释放后按新的限制计算
+ */
+public class Bulkhead {
+
+    public enum Category {
+        QUERY, ADMIN_READ, ADMIN_WRITE, ASR
+    }
+
+    private final EnumMap<Category, Compartment> compartments = new EnumMap<>(Category.class);
+    private long maxWait = 10000;               // 在等待队列中的最长时间，毫秒
+
+    public Bulkhead() {
+        // 每类操作的 Compartment 只在这里创建，之后只调整它的限制
+        compartments.put(Category.QUERY, new Compartment(64, 256));
+        compartments.put(Category.ADMIN_READ, new Compartment(8, 32));
+        compartments.put(Category.ADMIN_WRITE, new Compartment(4, 64));
+        compartments.put(Category.ASR, new Compartment(8, 16));
+    }
+
+    /**
+     * 根据请求判断类型
+     *
+     * @param method
+     * @param path
+     * @return
+     */
+    public static Category categoryOf(final String method, final String path) {
+        if (StringUtils.equals(method, "POST")) {
+            if (StringUtils.startsWith(path, "/asr/recognize")) {
+                return Category.ASR;
+            }
+            if (StringUtils.startsWith(path, "/conversation/query")
+                    || StringUtils.startsWith(path, "/faq/query")
+                    || StringUtils.startsWith(path, "/clause/prover")) {
+                return Category.QUERY;
+            }
+        }
+        return StringUtils.equals(method, "GET") ? Category.ADMIN_READ : Category.ADMIN_WRITE;
+    }
+
+    /**
+     * 设置一类操作的限制
+     * 调小并发数时，超出的许可在正在执行的请求释放后回收，不会中断它们
+     *
+     * @param category
+     * @param maxConcurrent 最大并发数
+     * @param maxQueue      最多等待的请求数，为 0 时不等待
+     */
+    public void setLimit(final Category category, final int maxConcurrent, final int maxQueue) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent should be positive.");
+        }
+        if (maxQueue < 0) {
+            throw new IllegalArgumentException("maxQueue can not be negative.");
+        }
+        compartments.get(category).resize(maxConcurrent, maxQueue);
+    }
+
+    /**
+     * 获取执行许可，并发数达到上限时排队等待，最长 maxWait
+     * 获得许可后必须调用 {@link #release(Category)}
+     *
+     * @param category
+     * @throws ChatbotException 队列已满、等待超时或被中断
+     */
+    public void acquire(final Category category) throws ChatbotException {
+        Compartment c = compartments.get(category);
+        if (c.permits.tryAcquire()) {
+            return;
+        }
+        if (c.waiting.incrementAndGet() > c.maxQueue) {
+            c.waiting.decrementAndGet();
+            c.rejected.increment();
+            throw new BulkheadFullException("Bulkhead " + category + " is full.");
+        }
+        try {
+            if (!c.permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                c.rejected.increment();
+                throw new BulkheadFullException("Bulkhead " + category + " waits longer than " + maxWait + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when waiting for bulkhead " + category + ".", e);
+        } finally {
+            c.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * 尝试获取执行许可，不等待
+     *
+     * @param category
+     * @return
+     */
+    public boolean tryAcquire(final Category category) {
+        Compartment c = compartments.get(category);
+        if (c.permits.tryAcquire()) {
+            return true;
+        }
+        c.rejected.increment();
+        return false;
+    }
+
+    public void release(final Category category) {
+        compartments.get(category).permits.release();
+    }
+
+    private static class Compartment {
+        private volatile int maxConcurrent;
+        private volatile int maxQueue;
+        private final Permits permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        Compartment(final int maxConcurrent, final int maxQueue) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.permits = new Permits(maxConcurrent);
+        }
+
+        /**
+         * 调整同一个 Semaphore 的许可数，已经发出的许可释放后仍然按新的总数计算
+         */
+        synchronized void resize(final int maxConcurrent, final int maxQueue) {
+            int delta = maxConcurrent - this.maxConcurrent;
+            if (delta > 0) {
+                permits.release(delta);
+            } else if (delta < 0) {
+                permits.reducePermits(-delta);
+            }
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+        }
+    }
+
+    /**
+     * 可以减少许可数的 Semaphore，可用许可数可能暂时为负
+     */
+    private static class Permits extends Semaphore {
+        Permits(final int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(final int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getMaxConcurrent(final Category category) {
+        return compartments.get(category).maxConcurrent;
+    }
+
+    public int getMaxQueue(final Category category) {
+        return compartments.get(category).maxQueue;
+    }
+
+    /**
+     * 正在执行的请求数
+     *
+     * @param category
+     * @return
+     */
+    public int getActive(final Category category) {
+        Compartment c = compartments.get(category);
+        return c.maxConcurrent - c.permits.availablePermits();
+    }
+
+    /**
+     * 正在排队的请求数
+     *
+     * @param category
+     * @return
+     */
+    public int getWaiting(final Category category) {
+        return compartments.get(category).waiting.get();
+    }
+
+    /**
+     * 被拒绝的请求数
+     *
+     * @param category
+     * @return
+     */
+    public long getRejected(final Category category) {
+        return compartments.get(category).rejected.sum();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import java.util.Arrays;
+
+/**
+ * 流式去掉响应体中所有层级的 chatbotID 字段，同时读取第一层的 rc
+ * 和 Response 不同，失败的返回值也去掉 chatbotID，转发给客户端的响应体都不包含机器人 ID
+ * 只扫描一遍，在原数组上前移后面的字节，不分配新的缓冲区；不合法的 JSON 尽量原样保留，不抛出异常
+ */
+final class ChatbotIdFilter {
+    private static final byte[] CHATBOT_ID = {'"', 'c', 'h', 'a', 't', 'b', 'o', 't', 'I', 'D', '"'};
+    private static final byte[] RC = {'"', 'r', 'c', '"'};
+
+    private int length;
+    private int rc = -1;
+
+    /**
+     * 过滤 body 的前 len 个字节，结果写回 body
+     *
+     * @param body
+     * @param len
+     */
+    void apply(final byte[] body, final int len) {
+        int r = skipWhitespace(body, 0, len);
+        if (r >= len || body[r] != '{') {
+            length = len;
+            return;
+        }
+
+        int w = r;
+        byte[] stack = new byte[16];   // 1 表示对象，0 表示数组
+        int depth = 0;
+        boolean expectKey = false;
+        int comma = -1;                // 当前字段之前的逗号在输出中的位置，第一个字段为 -1
+
+        while (r < len) {
+            final byte c = body[r];
+            if (c == '"') {
+                final int end = skipString(body, r, len);
+                if (expectKey) {
+                    final int colon = skipWhitespace(body, end, len);
+                    if (colon < len && body[colon] == ':') {
+                        if (matches(body, r, end, CHATBOT_ID)) {
+                            int next = skipValue(body, skipWhitespace(body, colon + 1, len), len);
+                            if (comma >= 0) {
+                                w = comma;
+                            } else {
+                                next = skipWhitespace(body, next, len);
+                                if (next < len && body[next] == ',') {
+                                    next = skipWhitespace(body, next + 1, len);
+                                }
+                            }
+                            expectKey = comma < 0;
+                            r = next;
+                            continue;
+                        }
+                        if (depth == 1 && matches(body, r, end, RC)) {
+                            rc = parseInt(body, skipWhitespace(body, colon + 1, len), len);
+                        }
+                    }
+                    expectKey = false;
+                }
+                w = copy(body, r, w, end - r);
+                r = end;
+                continue;
+            }
+
+            switch (c) {
+                case '{':
+                case '[':
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = (byte) (c == '{' ? 1 : 0);
+                    expectKey = c == '{';
+                    comma = -1;
+                    break;
+                case '}':
+                case ']':
+                    if (depth > 0) {
+                        depth--;
+                    }
+                    expectKey = false;
+                    break;
+                case ',':
+                    if (depth > 0 && stack[depth - 1] == 1) {
+                        expectKey = true;
+                        comma = w;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            body[w++] = c;
+            r++;
+        }
+        length = w;
+    }
+
+    /**
+     * 过滤后的长度
+     *
+     * @return
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * 第一层的 rc，没有或者不是整数时为 -1
+     *
+     * @return
+     */
+    int getRc() {
+        return rc;
+    }
+
+    private static int copy(final byte[] body, final int from, final int to, final int n) {
+        if (from != to) {
+            System.arraycopy(body, from, body, to, n);
+        }
+        return to + n;
+    }
+
+    private static boolean matches(final byte[] body, final int start, final int end, final byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (body[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseInt(final byte[] body, int i, final int len) {
+        if (i < len && body[i] == '"') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < len && body[i] == '-') {
+            negative = true;
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < len && body[i] >= '0' && body[i] <= '9' && digits < 10) {
+            value = value * 10 + (body[i++] - '0');
+            digits++;
+        }
+        if (digits == 0 || value > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static int skipWhitespace(final byte[] body, int i, final int len) {
+        while (i < len && (body[i] == ' ' || body[i] == '\n' || body[i] == '\r' || body[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param body
+     * @param i    起始的引号
+     * @param len
+     * @return 结束的引号之后的位置
+     */
+    private static int skipString(final byte[] body, int i, final int len) {
+        i++;
+        while (i < len) {
+            final byte c = body[i++];
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    private static int skipValue(final byte[] body, int i, final int len) {
+        int depth = 0;
+        while (i < len) {
+            final byte c = body[i];
+            if (c == '"') {
+                i = skipString(body, i, len);
+                if (depth == 0) {
+                    return i;
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    return i;
+                }
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            } else if (depth == 0 && (c == ',' || c == ' ' || c == '\n' || c == '\r' || c == '\t')) {
+                return i;
+            }
+            i++;
+        }
+        return len;
+    }
+}
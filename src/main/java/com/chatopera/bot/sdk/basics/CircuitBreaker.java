@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.CircuitBreakerOpenException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器，按请求方法和接口路径模板分别统计，比如 `POST /faq/query`
+ * 滑动窗口内失败率超过阈值后打开，快速失败；等待 openDuration 后进入半开状态，放行少量请求试探，全部成功后关闭
+ * 网络异常和 5xx, 429 状态码记为失败，返回值 rc 不为 0 属于业务结果，不记为失败
+ * 其它异常比如参数错误来自调用方，通过 {@link #onError(String, Throwable)} 记录时不计入统计，一个调用方的错误输入不会打开熔断器
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // 这些路径之后的一段是资源标识，归一化为 {id}
+    private final static Set<String> COLLECTIONS = new HashSet<>(Arrays.asList(
+            "database", "extend", "categories", "customdicts", "session", "users"));
+
+    private double failureRateThreshold = 0.5;  // 失败率阈值
+    private int slidingWindowSize = 20;         // 滑动窗口，最近的请求数
+    private int minimumCalls = 10;              // 窗口内请求数达到该值后才计算失败率
+    private long openDuration = 30000;          // 打开状态持续时长，毫秒
+    private int halfOpenCalls = 3;              // 半开状态放行的请求数
+
+    private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * 获得熔断器的键，请求方法加上归一化的路径，去掉查询参数
+     *
+     * @param method
+     * @param path   /faq/database/{id}/extend?sdklang=java
+     * @return
+     */
+    public static String key(final String method, final String path) {
+        String p = StringUtils.substringBefore(path, "?");
+        String[] segments = StringUtils.split(p, "/");
+        StringBuilder sb = new StringBuilder(method).append(' ');
+        String prev = null;
+        for (String segment : segments) {
+            sb.append('/').append(prev != null && COLLECTIONS.contains(prev) ? "{id}" : segment);
+            prev = segment;
+        }
+        if (segments.length == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 请求发送前调用，熔断器打开时抛出异常
+     *
+     * @param key
+     * @throws CircuitBreakerOpenException
+     */
+    public void acquire(final String key) throws CircuitBreakerOpenException {
+        if (!circuit(key).tryAcquire(System.currentTimeMillis())) {
+            throw new CircuitBreakerOpenException("Circuit breaker is open for " + key);
+        }
+    }
+
+    public void onSuccess(final String key) {
+        circuit(key).record(true, System.currentTimeMillis());
+    }
+
+    public void onFailure(final String key) {
+        circuit(key).record(false, System.currentTimeMillis());
+    }
+
+    /**
+     * 请求异常，网络异常记为失败，其它异常不计入统计，只归还半开状态的试探名额
+     *
+     * @param key
+     * @param e
+     */
+    public void onError(final String key, final Throwable e) {
+        if (isFailure(e)) {
+            onFailure(key);
+        } else {
+            circuit(key).ignore(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 原因链中有 IOException 的异常记为失败，比如连接失败和超时
+     *
+     * @param e
+     * @return
+     */
+    protected boolean isFailure(final Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public State getState(final String key) {
+        return circuit(key).state(System.currentTimeMillis());
+    }
+
+    private Circuit circuit(final String key) {
+        Circuit c = circuits.get(key);
+        if (c == null) {
+            c = circuits.computeIfAbsent(key, k -> new Circuit());
+        }
+        return c;
+    }
+
+    /**
+     * 单个接口的熔断状态
+     */
+    private class Circuit {
+        private State state = State.CLOSED;
+        private final boolean[] window = new boolean[slidingWindowSize];   // true 为失败
+        private int calls;
+        private int failures;
+        private int next;
+        private long openedAt;
+        private int halfOpenPermits;
+        private int halfOpenSuccesses;
+
+        synchronized boolean tryAcquire(final long now) {
+            switch (state(now)) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    if (halfOpenPermits > 0) {
+                        halfOpenPermits--;
+                        return true;
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+
+        synchronized void record(final boolean success, final long now) {
+            if (state(now) == State.HALF_OPEN) {
+                if (!success) {
+                    open(now);
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    close();
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                return;
+            }
+
+            if (calls == window.length) {
+                if (window[next]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            window[next] = !success;
+            if (!success) {
+                failures++;
+            }
+            next = (next + 1) % window.length;
+
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open(now);
+            }
+        }
+
+        synchronized void ignore(final long now) {
+            if (state(now) == State.HALF_OPEN && halfOpenPermits < halfOpenCalls - halfOpenSuccesses) {
+                halfOpenPermits++;
+            }
+        }
+
+        synchronized State state(final long now) {
+            if (state == State.OPEN && now - openedAt >= openDuration) {
+                state = State.HALF_OPEN;
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            return state;
+        }
+
+        private void open(final long now) {
+            state = State.OPEN;
+            openedAt = now;
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            calls = 0;
+            failures = 0;
+            next = 0;
+            Arrays.fill(window, false);
+        }
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * 只对之后新建的接口统计生效
+     *
+     * @param slidingWindowSize
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
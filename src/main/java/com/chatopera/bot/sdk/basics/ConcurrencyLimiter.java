@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.exception.ConcurrencyLimitException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制，根据请求的耗时和失败调整同时发送的请求数
+ * AIMD：请求成功且并发数接近限制时加 1，失败（异常、5xx、429 或超过 timeout）时乘以 backoffRatio
+ * VEGAS：用最小耗时估计无排队的耗时，排队估计 limit * (1 - minRtt / rtt) 小于 alpha 时增加，大于 beta 时减少
+ * 同一个机器人的多个 Chatbot 实例应共用一个 ConcurrencyLimiter
+ */
+public class ConcurrencyLimiter {
+
+    public enum Algorithm {
+        AIMD, VEGAS
+    }
+
+    private Algorithm algorithm = Algorithm.VEGAS;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private double backoffRatio = 0.9;      // 失败时限制乘以该值
+    private long timeout = 5000;            // 耗时超过该值按失败处理，毫秒
+    private long maxWait = 10000;           // 等待并发额度的最长时间，毫秒
+    private int probeInterval = 1000;       // VEGAS 每隔多少次请求重新测量最小耗时
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inflight;
+    private long minRtt;
+    private int samples;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ConcurrencyLimiter() {
+        this(20);
+    }
+
+    /**
+     * @param initialLimit 初始的并发限制
+     */
+    public ConcurrencyLimiter(final int initialLimit) {
+        this.limit = initialLimit;
+    }
+
+    /**
+     * 获得并发额度，达到限制时等待，最多等待 maxWait
+     *
+     * @throws ChatbotException 等待超时为 ConcurrencyLimitException
+     */
+    public void acquire() throws ChatbotException {
+        lock.lock();
+        try {
+            long left = TimeUnit.MILLISECONDS.toNanos(maxWait);
+            while (inflight >= (int) limit) {
+                if (left <= 0) {
+                    rejected.increment();
+                    throw new ConcurrencyLimitException("Concurrency limit " + (int) limit + " is reached.");
+                }
+                try {
+                    left = available.awaitNanos(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ChatbotException("Interrupted when waiting for concurrency limit.", e);
+                }
+            }
+            inflight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获得并发额度，不等待
+     *
+     * @return 达到限制时返回 false
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inflight >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            inflight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求结束，释放额度并根据结果调整限制
+     *
+     * @param rttNanos 请求耗时，纳秒
+     * @param failed   请求是否失败（异常、5xx 或 429）
+     */
+    public void release(final long rttNanos, final boolean failed) {
+        lock.lock();
+        try {
+            sample(rttNanos, failed);
+            inflight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放额度，不调整限制，用于没有发送到服务端的请求，比如熔断器打开时
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inflight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次发送的耗时和结果，根据结果调整限制，不释放额度
+     * 一个额度内有多次发送时（重试、对冲），每次发送分别记录，配合 {@link #release()} 使用
+     *
+     * @param rttNanos 这次发送的耗时，纳秒
+     * @param failed   这次发送是否失败（异常、5xx 或 429）
+     */
+    public void onSample(final long rttNanos, final boolean failed) {
+        lock.lock();
+        try {
+            sample(rttNanos, failed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sample(final long rttNanos, final boolean failed) {
+        final boolean drop = failed || rttNanos > TimeUnit.MILLISECONDS.toNanos(timeout);
+        if (drop) {
+            dropped.increment();
+        }
+        if (algorithm == Algorithm.AIMD) {
+            aimd(drop);
+        } else {
+            vegas(rttNanos, drop);
+        }
+    }
+
+    private void aimd(final boolean drop) {
+        if (drop) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inflight * 2 >= limit) {
+            // 并发数远低于限制时，请求成功不能说明更高的并发也能承受
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    private void vegas(final long rttNanos, final boolean drop) {
+        if (++samples >= probeInterval) {
+            // 服务端的无负载耗时会变化，定期重新测量
+            samples = 0;
+            minRtt = 0;
+        }
+        if (drop) {
+            // 失败的请求可能没有经过服务端的处理就快速返回，不用于估计无排队耗时
+            limit = Math.max(minLimit, limit * backoffRatio);
+            return;
+        }
+        if (rttNanos > 0 && (minRtt == 0 || rttNanos < minRtt)) {
+            minRtt = rttNanos;
+        }
+        if (minRtt == 0 || inflight * 2 < limit) {
+            return;
+        }
+
+        final double log = Math.max(1, Math.log10(limit));
+        final double queue = limit * (1 - (double) minRtt / rttNanos);
+        if (queue <= 3 * log) {
+            limit = Math.min(maxLimit, limit + log);
+        } else if (queue >= 6 * log) {
+            limit = Math.max(minLimit, limit - log);
+        }
+    }
+
+    /**
+     * 当前的并发限制
+     *
+     * @return
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 无排队耗时的估计值
+     *
+     * @return 毫秒
+     */
+    public double getMinRtt() {
+        lock.lock();
+        try {
+            return (double) minRtt / TimeUnit.MILLISECONDS.toNanos(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 因达到限制被拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 按失败处理、使限制降低的请求数
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * 设置等待并发额度的最长时间，为 0 时不等待
+     *
+     * @param maxWait 毫秒
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(int probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+}
@@ -16,23 +16,41 @@
 package com.chatopera.bot.sdk.basics;
 
 import com.chatopera.bot.exception.ChatbotException;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.json.JSONObject;
 
 import javax.crypto.Mac;
-import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 凭证管理
+ * 每个请求都会生成签名，初始化好的 Mac 和缓冲区放在无锁的池中复用，签名过程只创建最终的 token 字符串
+ * 不使用 ThreadLocal：虚拟线程数量多、生命周期短，每个线程各建一个 Mac 反而更慢
+ * 池中最多保留 CPU 核数 2 倍的签名器，突发并发时多建的签名器用完即丢弃
  */
 public class Credentials {
 
+    private final static String MAC_NAME = "HmacSHA1";
+    private final static byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] RANDOM_PREFIX = "\",\"random\":\"".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] SIGNATURE_PREFIX = "\",\"signature\":\"".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] TOKEN_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private final static int RANDOM_LENGTH = 10;
+    private final static long RANDOM_BOUND = 10000000000L;
+    private final static int TIMESTAMP_LENGTH = 10;
+    private final static int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+
     private String clientId;
     private String clientSecret;
+    private byte[] clientIdBytes;
+    private byte[] tokenPrefix;     // {"appId":"<clientId>","timestamp":"
+    private final ConcurrentLinkedQueue<Signer> signers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();  // 池中的签名器数量
 
     // 私有化无参数的构造函数，不支持建立空实例
     private Credentials() {
@@ -41,50 +59,177 @@ public class Credentials {
     public Credentials(final String clientId, final String clientSecret) {
         this.clientId = clientId;
         this.clientSecret = clientSecret;
+        this.clientIdBytes = clientId.getBytes(StandardCharsets.UTF_8);
+        this.tokenPrefix = ("{\"appId\":" + JSONObject.quote(clientId) + ",\"timestamp\":\"").getBytes(StandardCharsets.UTF_8);
     }
 
-    private String byte2hex(byte[] b) {
-        StringBuilder hs = new StringBuilder();
-        String stmp;
-        for (int n = 0; b != null && n < b.length; n++) {
-            stmp = Integer.toHexString(b[n] & 0XFF);
-            if (stmp.length() == 1)
-                hs.append('0');
-            hs.append(stmp);
+    /**
+     * 生成请求的认证签名
+     *
+     * @param method
+     * @param path
+     * @return Base64 编码的 token
+     * @throws ChatbotException
+     */
+    public String generate(String method, String path) throws ChatbotException {
+        Signer signer = signers.poll();
+        if (signer == null) {
+            signer = newSigner();
+        } else {
+            pooled.decrementAndGet();
+        }
+        try {
+            return signer.sign(System.currentTimeMillis() / 1000, ThreadLocalRandom.current().nextLong(RANDOM_BOUND), method, path);
+        } finally {
+            if (pooled.incrementAndGet() <= MAX_POOLED) {
+                signers.offer(signer);
+            } else {
+                pooled.decrementAndGet();
+            }
         }
-        return hs.toString().toLowerCase();
     }
 
-    private String HmacSHA1Encrypt(String encryptText, String encryptKey) throws Exception {
-        String MAC_NAME = "HmacSHA1";
-        String ENCODING = "UTF-8";
-        byte[] data = encryptKey.getBytes(ENCODING);
-        SecretKey secretKey = new SecretKeySpec(data, MAC_NAME);
-        Mac mac = Mac.getInstance(MAC_NAME);
-        mac.init(secretKey);
-        byte[] text = encryptText.getBytes(ENCODING);
-        return byte2hex(mac.doFinal(text));
+    /**
+     * 池中的签名器数量
+     *
+     * @return
+     */
+    int getPooled() {
+        return pooled.get();
     }
 
+    static int getMaxPooled() {
+        return MAX_POOLED;
+    }
 
-    public String generate(String method, String path) throws ChatbotException {
-        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-        String random = RandomStringUtils.random(10, false, true);
-        String signature = null;
+    private Signer newSigner() throws ChatbotException {
         try {
-            signature = HmacSHA1Encrypt(this.clientId + timestamp + random + method + path, this.clientSecret);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new ChatbotException("生成认证签名异常。");
+            Mac mac = Mac.getInstance(MAC_NAME);
+            mac.init(new SecretKeySpec(clientSecret.getBytes(StandardCharsets.UTF_8), MAC_NAME));
+            return new Signer(mac);
+        } catch (GeneralSecurityException e) {
+            throw new ChatbotException("生成认证签名异常。", e);
+        }
+    }
+
+    /**
+     * 可复用的签名器，同一时间只被一个线程使用
+     */
+    private final class Signer {
+        private final Mac mac;
+        private final byte[] digest;
+        private final byte[] scratch = new byte[256];
+        private final byte[] timestamp = new byte[20];
+        private final byte[] random = new byte[RANDOM_LENGTH];
+        private final byte[] token;
+        private final byte[] encoded;
+
+        private Signer(final Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+            this.token = new byte[tokenLength(TIMESTAMP_LENGTH)];
+            this.encoded = new byte[4 * ((token.length + 2) / 3)];
+        }
+
+        private int tokenLength(final int timestampLength) {
+            return tokenPrefix.length + timestampLength + RANDOM_PREFIX.length + RANDOM_LENGTH
+                    + SIGNATURE_PREFIX.length + digest.length * 2 + TOKEN_SUFFIX.length;
+        }
+
+        private String sign(final long seconds, final long nonce, final String method, final String path) throws ChatbotException {
+            int timestampLength = digits(seconds, timestamp);
+            zeroPaddedDigits(nonce, random);
+
+            // signature = HmacSHA1(clientId + timestamp + random + method + path)
+            try {
+                mac.update(clientIdBytes);
+                mac.update(timestamp, 0, timestampLength);
+                mac.update(random);
+                update(method);
+                update(path);
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                mac.reset();
+                throw new ChatbotException("生成认证签名异常。", e);
+            }
+
+            // {"appId":"...","timestamp":"...","random":"...","signature":"..."}
+            byte[] out = timestampLength == TIMESTAMP_LENGTH ? token : new byte[tokenLength(timestampLength)];
+            int pos = put(out, 0, tokenPrefix, tokenPrefix.length);
+            pos = put(out, pos, timestamp, timestampLength);
+            pos = put(out, pos, RANDOM_PREFIX, RANDOM_PREFIX.length);
+            pos = put(out, pos, random, RANDOM_LENGTH);
+            pos = put(out, pos, SIGNATURE_PREFIX, SIGNATURE_PREFIX.length);
+            for (byte b : digest) {
+                out[pos++] = HEX[(b >> 4) & 0x0F];
+                out[pos++] = HEX[b & 0x0F];
+            }
+            put(out, pos, TOKEN_SUFFIX, TOKEN_SUFFIX.length);
+
+            if (out == token) {
+                int n = Base64.getEncoder().encode(token, encoded);
+                return new String(encoded, 0, n, StandardCharsets.ISO_8859_1);
+            }
+            return new String(Base64.getEncoder().encode(out), StandardCharsets.ISO_8859_1);
         }
-        Map<String, String> map = new HashMap<String, String>();
-        map.put("appId", this.clientId);
-        map.put("timestamp", timestamp);
-        map.put("random", random);
-        map.put("signature", signature);
 
-        JSONObject json = new JSONObject(map);
+        /**
+         * ASCII 字符串直接写入缓冲区，其它字符串按 UTF-8 编码
+         *
+         * @param s
+         */
+        private void update(final String s) {
+            if (s == null) {
+                mac.update("null".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            int len = s.length();
+            if (len <= scratch.length) {
+                boolean ascii = true;
+                for (int i = 0; i < len; i++) {
+                    char c = s.charAt(i);
+                    if (c >= 0x80) {
+                        ascii = false;
+                        break;
+                    }
+                    scratch[i] = (byte) c;
+                }
+                if (ascii) {
+                    mac.update(scratch, 0, len);
+                    return;
+                }
+            }
+            mac.update(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 写入十进制数字，返回位数
+     */
+    private static int digits(long value, final byte[] out) {
+        int len = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            len++;
+        }
+        for (int i = len - 1; i >= 0; i--) {
+            out[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        return len;
+    }
+
+    /**
+     * 写入固定位数的十进制数字，不足时补 0
+     */
+    private static void zeroPaddedDigits(long value, final byte[] out) {
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
 
-        return new String(Base64.encodeBase64(json.toString().getBytes()));
+    private static int put(final byte[] out, final int pos, final byte[] src, final int len) {
+        System.arraycopy(src, 0, out, pos, len);
+        return pos + len;
     }
 }
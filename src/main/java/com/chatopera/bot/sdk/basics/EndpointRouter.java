@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 多个服务地址之间的路由：选择 EWMA 延迟最低的地址，连续失败后摘除，摘除期间定期探测，探测成功后恢复
+ * 另有 exploration 比例的请求随机发往未摘除的地址，延迟曾经升高的地址也能得到新的样本，恢复后重新被选中
+ * 探测由后续请求触发，在 prober 中异步执行，不启动后台线程
+ */
+public class EndpointRouter {
+
+    private final List<Endpoint> endpoints;
+    private final Consumer<Endpoint> prober;
+    private double alpha = 0.3;                 // EWMA 平滑系数
+    private int maxFailures = 3;                // 连续失败次数达到该值后摘除
+    private long probeInterval = 5000;          // 摘除后的探测间隔，毫秒
+    private double exploration = 0.02;          // 随机选择地址的请求比例
+
+    /**
+     * @param baseUrls 服务地址，比如 https://bot.chatopera.com/api/v1/chatbot
+     * @param prober   探测摘除的地址，完成后调用 {@link #onProbe(Endpoint, boolean)}
+     */
+    public EndpointRouter(final List<String> baseUrls, final Consumer<Endpoint> prober) {
+        List<Endpoint> list = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            list.add(new Endpoint(baseUrl));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.prober = prober;
+    }
+
+    /**
+     * 选择一个地址，所有地址都被摘除时选择最早摘除的
+     *
+     * @return
+     */
+    public Endpoint select() {
+        final long now = System.nanoTime();
+        Endpoint best = null;
+        Endpoint oldest = null;
+        int healthy = 0;
+        for (Endpoint e : endpoints) {
+            if (e.ejected) {
+                probe(e, now);
+                if (oldest == null || e.ejectedAt - oldest.ejectedAt < 0) {
+                    oldest = e;
+                }
+                continue;
+            }
+            healthy++;
+            if (best == null || e.ewma < best.ewma) {
+                best = e;
+            }
+        }
+        if (best == null) {
+            return oldest;
+        }
+
+        // 只有被选中才会更新 EWMA，失败后延迟加倍的地址如果从不被选中，就会一直被放弃
+        if (healthy > 1 && exploration > 0 && ThreadLocalRandom.current().nextDouble() < exploration) {
+            int k = ThreadLocalRandom.current().nextInt(healthy);
+            for (Endpoint e : endpoints) {
+                if (!e.ejected && k-- == 0) {
+                    return e;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 请求成功，更新延迟；被摘除的地址恢复
+     *
+     * @param e
+     * @param nanos 请求耗时
+     */
+    public void onSuccess(final Endpoint e, final long nanos) {
+        e.failures.set(0);
+        e.ewma = e.ewma == 0 ? nanos : alpha * nanos + (1 - alpha) * e.ewma;
+        e.ejected = false;
+    }
+
+    /**
+     * 请求失败，连续失败达到 maxFailures 后摘除
+     *
+     * @param e
+     */
+    public void onFailure(final Endpoint e) {
+        // 失败的地址延迟加倍，后续请求优先发往其它地址
+        e.ewma = Math.max(e.ewma * 2, TimeUnit.MILLISECONDS.toNanos(100));
+        if (e.failures.incrementAndGet() >= maxFailures && !e.ejected) {
+            long now = System.nanoTime();
+            e.ejectedAt = now;
+            e.nextProbe = now + TimeUnit.MILLISECONDS.toNanos(probeInterval);
+            e.ejected = true;
+        }
+    }
+
+    /**
+     * 探测完成
+     *
+     * @param e
+     * @param ok 探测是否成功
+     */
+    public void onProbe(final Endpoint e, final boolean ok) {
+        if (ok) {
+            e.failures.set(0);
+            e.ejected = false;
+        }
+        e.probing.set(false);
+    }
+
+    private void probe(final Endpoint e, final long now) {
+        if (now - e.nextProbe >= 0 && e.probing.compareAndSet(false, true)) {
+            e.nextProbe = now + TimeUnit.MILLISECONDS.toNanos(probeInterval);
+            try {
+                prober.accept(e);
+            } catch (RuntimeException ex) {
+                e.probing.set(false);
+            }
+        }
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    public double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * 设置随机选择地址的请求比例
+     *
+     * @param exploration 0 到 1，为 0 时总是选择 EWMA 延迟最低的地址
+     */
+    public void setExploration(double exploration) {
+        if (exploration < 0 || exploration > 1) {
+            throw new IllegalArgumentException("exploration should be in [0, 1].");
+        }
+        this.exploration = exploration;
+    }
+
+    /**
+     * 服务地址及其状态
+     */
+    public static class Endpoint {
+        private final String baseUrl;
+        private volatile double ewma;           // 纳秒，0 表示还没有样本，优先选择
+        private volatile boolean ejected;
+        private volatile long ejectedAt;
+        private volatile long nextProbe;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicBoolean probing = new AtomicBoolean();
+
+        Endpoint(final String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        /**
+         * EWMA 延迟
+         *
+         * @return 毫秒
+         */
+        public double getLatency() {
+            return ewma / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public boolean isEjected() {
+            return ejected;
+        }
+
+        public int getConsecutiveFailures() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl;
+        }
+    }
+}
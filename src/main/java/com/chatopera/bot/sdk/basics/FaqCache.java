@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONObject;
+
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 知识库查询结果的缓存，按归一化的问题和两个阈值缓存，和用户无关
+ * 按最近最少使用淘汰，同时限制条数和权重（按 UTF-16 估算的字节数）
+ * 超过 ttl 之后的 staleWhileRevalidate 时间内仍然返回旧的结果，同时在后台重新查询；再之后视为未命中
+ * 只缓存 rc 为 0 的结果，只保留 rc、msg 和 data，其余字段比如 status 不缓存；命中和未命中时返回的字段相同，每次返回新的 JSONObject
+ */
+public class FaqCache {
+
+    private int maxEntries = 10000;                 // 最多缓存的条数
+    private long maxWeight = 16L * 1024 * 1024;     // 最大权重，字节
+    private long ttl = 60000;                       // 有效时间，毫秒
+    private long staleWhileRevalidate = 30000;      // 过期后仍然可以返回旧结果的时间，毫秒
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 缓存的键：Unicode NFKC 归一化（全角转半角）、转小写、合并空白，再加上两个阈值
+     *
+     * @param textMessage
+     * @param faqBestReplyThreshold
+     * @param faqSuggReplyThreshold
+     * @return
+     */
+    public static String key(final String textMessage, final double faqBestReplyThreshold, final double faqSuggReplyThreshold) {
+        String text = Normalizer.normalize(textMessage, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        sb.append(faqBestReplyThreshold).append(' ').append(faqSuggReplyThreshold).append('\n');
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && sb.charAt(sb.length() - 1) != '\n') {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 读取缓存，未命中时调用 loader 查询并缓存结果
+     * 未命中时 rc 为 0 的结果同样只保留 rc、msg 和 data，rc 不为 0 时原样返回；过期但还在 staleWhileRevalidate 内时返回旧结果，并在 SDK 共用的线程池中重新查询
+     *
+     * @param key    {@link #key(String, double, double)}
+     * @param loader 查询知识库
+     * @return
+     * @throws ChatbotException
+     */
+    public JSONObject get(final String key, final Callable<JSONObject> loader) throws ChatbotException {
+        final Entry entry = lookup(key);
+        if (entry == null) {
+            misses.increment();
+            JSONObject result = load(loader);
+            JSONObject value = trim(result);
+            if (value == null) {
+                return result;
+            }
+            store(key, value);
+            return value;
+        }
+
+        hits.increment();
+        if (claim(entry)) {
+            try {
+                SdkExecutors.shared().execute(() -> revalidate(key, entry, loader));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    entry.revalidating = false;
+                }
+            }
+        }
+        return new JSONObject(entry.json);
+    }
+
+    /**
+     * 异步读取缓存，未命中时调用 loader 查询并缓存结果；和 {@link #get(String, Callable)} 返回相同的字段
+     * 过期但还在 staleWhileRevalidate 内时返回旧结果，同时调用 loader 重新查询，不占用线程池
+     *
+     * @param key    {@link #key(String, double, double)}
+     * @param loader 异步查询知识库
+     * @return
+     */
+    public CompletableFuture<JSONObject> getAsync(final String key, final Supplier<CompletableFuture<JSONObject>> loader) {
+        final Entry entry = lookup(key);
+        if (entry == null) {
+            misses.increment();
+            return loader.get().thenApply(result -> {
+                JSONObject value = trim(result);
+                if (value == null) {
+                    return result;
+                }
+                store(key, value);
+                return value;
+            });
+        }
+
+        hits.increment();
+        if (claim(entry)) {
+            CompletableFuture<JSONObject> reload;
+            try {
+                reload = loader.get();
+            } catch (RuntimeException e) {
+                reload = new CompletableFuture<>();
+                reload.completeExceptionally(e);
+            }
+            reload.whenComplete((result, err) -> {
+                if (err == null) {
+                    put(key, result);
+                }
+                // 失败时保留旧的结果直到彻底过期
+                synchronized (this) {
+                    entry.revalidating = false;
+                }
+            });
+        }
+        return CompletableFuture.completedFuture(new JSONObject(entry.json));
+    }
+
+    /**
+     * 查找缓存，彻底过期的记录被移除
+     *
+     * @param key
+     * @return 未命中时为 null
+     */
+    private synchronized Entry lookup(final String key) {
+        Entry e = entries.get(key);
+        if (e != null && System.nanoTime() - e.loaded >= TimeUnit.MILLISECONDS.toNanos(ttl + staleWhileRevalidate)) {
+            remove(key);
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * 记录过期的命中，没有其它调用正在重新查询时由这次调用重新查询
+     *
+     * @param entry
+     * @return 是否需要重新查询
+     */
+    private synchronized boolean claim(final Entry entry) {
+        if (System.nanoTime() - entry.loaded < TimeUnit.MILLISECONDS.toNanos(ttl)) {
+            return false;
+        }
+        staleHits.increment();
+        if (entry.revalidating) {
+            return false;
+        }
+        entry.revalidating = true;
+        return true;
+    }
+
+    /**
+     * 缓存查询结果，rc 不为 0 时不缓存
+     *
+     * @param key
+     * @param result
+     */
+    public void put(final String key, final JSONObject result) {
+        JSONObject value = trim(result);
+        if (value != null) {
+            store(key, value);
+        }
+    }
+
+    /**
+     * 只保留 rc、msg 和 data，rc 不为 0 时返回 null
+     *
+     * @param result
+     * @return
+     */
+    private static JSONObject trim(final JSONObject result) {
+        if (result == null || result.optInt("rc", -1) != 0) {
+            return null;
+        }
+        JSONObject value = new JSONObject();
+        value.put("rc", 0);
+        if (result.has("msg")) {
+            value.put("msg", result.get("msg"));
+        }
+        if (result.has("data")) {
+            value.put("data", result.get("data"));
+        }
+        return value;
+    }
+
+    private void store(final String key, final JSONObject value) {
+        final Entry entry = new Entry(value.toString(), System.nanoTime());
+        final long w = 2L * (key.length() + entry.json.length());
+        if (w > maxWeight) {
+            return;
+        }
+        entry.weight = w;
+
+        synchronized (this) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                weight -= old.weight;
+            }
+            weight += w;
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+                weight -= it.next().getValue().weight;
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，比如知识库更新之后
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void revalidate(final String key, final Entry entry, final Callable<JSONObject> loader) {
+        try {
+            put(key, loader.call());
+        } catch (Exception e) {
+            // 保留旧的结果直到彻底过期
+        } finally {
+            synchronized (this) {
+                entry.revalidating = false;
+            }
+        }
+    }
+
+    private void remove(final String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            weight -= old.weight;
+        }
+    }
+
+    private static JSONObject load(final Callable<JSONObject> loader) throws ChatbotException {
+        try {
+            return loader.call();
+        } catch (ChatbotException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChatbotException(e.toString(), e);
+        }
+    }
+
+    private static class Entry {
+        private final String json;
+        private final long loaded;
+        private long weight;
+        private boolean revalidating;
+
+        private Entry(final String json, final long loaded) {
+            this.json = json;
+            this.loaded = loaded;
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries should be positive.");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * 设置最大权重，每条记录的权重为键和 JSON 文本按 UTF-16 估算的字节数
+     *
+     * @param maxWeight 字节
+     */
+    public void setMaxWeight(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight should be positive.");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 设置有效时间
+     *
+     * @param ttl 毫秒
+     */
+    public void setTtl(long ttl) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl should be positive.");
+        }
+        this.ttl = ttl;
+    }
+
+    public long getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * 设置过期后仍然返回旧结果的时间，期间在后台重新查询，为 0 时过期即未命中
+     *
+     * @param staleWhileRevalidate 毫秒
+     */
+    public void setStaleWhileRevalidate(long staleWhileRevalidate) {
+        if (staleWhileRevalidate < 0) {
+            throw new IllegalArgumentException("staleWhileRevalidate can not be negative.");
+        }
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * 当前的权重，字节
+     *
+     * @return
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * 命中次数，包括返回旧结果的次数
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 过期后返回旧结果的次数
+     *
+     * @return
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 超过条数或者权重被淘汰的次数，不包括过期
+     *
+     * @return
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求策略：请求在 delay 内没有返回时，再发送一个副本，使用先返回的结果并取消较慢的请求
+ * 取消作用于传输层返回的 Future，传输层支持时中止请求，参考 {@link Transport#requestAsync}
+ * 自适应延迟时，对冲请求先返回后第一个请求不取消，它的耗时是计算分位数的样本；固定延迟时两者都会取消
+ * delay 为 0 时使用观测到的延迟分位数，比如 p95；对冲请求占比受预算限制，避免故障时请求量翻倍
+ * 对冲请求需要自己的并发额度，没有额度时退还预算，不再对冲
+ * 只适用于查询类请求，比如 conversation 和 faq
+ */
+public class HedgePolicy {
+
+    private final static long TOKEN = 1000;     // 预算按千分之一计数
+    private final static int SAMPLES = 256;     // 保留最近的延迟样本数
+
+    private long delay = 0;                     // 固定的对冲延迟，毫秒；为 0 时按 percentile 自适应
+    private double percentile = 0.95;           // 自适应时使用的延迟分位数
+    private long initialDelay = 500;            // 样本不足时的对冲延迟，毫秒
+    private int minSamples = 20;                // 计算分位数需要的最少样本数
+    private double maxHedgeRatio = 0.05;        // 对冲请求占请求总数的比例上限
+    private int maxBurst = 10;                  // 预算的初始值和上限
+
+    private final AtomicLong budget = new AtomicLong(maxBurst * TOKEN);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private final long[] samples = new long[SAMPLES];
+    private int count;
+    private int next;
+    private volatile long observed = -1;
+
+    /**
+     * 执行请求，超过对冲延迟时发送副本
+     *
+     * @param attempt 发送一次异步请求，每次调用需要重新签名
+     * @return 先返回的结果
+     * @throws Exception
+     */
+    public TransportResponse execute(final Supplier<CompletableFuture<TransportResponse>> attempt) throws Exception {
+        return execute(attempt, attempt);
+    }
+
+    /**
+     * 执行请求，超过对冲延迟时发送副本，先返回的结果被使用
+     *
+     * @param attempt 发送第一个请求
+     * @param hedge   发送对冲请求，需要自己的并发额度，没有额度时返回 null，不再对冲
+     * @return 先返回的结果
+     * @throws Exception
+     */
+    public TransportResponse execute(final Supplier<CompletableFuture<TransportResponse>> attempt, final Supplier<CompletableFuture<TransportResponse>> hedge) throws Exception {
+        requests.increment();
+        deposit();
+        final CompletableFuture<TransportResponse> primary = primary(attempt);
+        try {
+            return primary.get(currentDelay(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 发送对冲请求
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when waiting for response.", e);
+        }
+
+        final CompletableFuture<TransportResponse> second = hedge(hedge);
+        if (second == null) {
+            return await(primary);
+        }
+        try {
+            return await(race(primary, second));
+        } finally {
+            cancel(primary, second);
+        }
+    }
+
+    /**
+     * 执行异步请求，对冲延迟由 SdkExecutors 的定时器处理，不占用线程
+     * 取消返回的 Future 时取消进行中的请求
+     *
+     * @param attempt 发送第一个请求
+     * @param hedge   发送对冲请求，需要自己的并发额度，没有额度时返回 null，不再对冲
+     * @return 先返回的结果
+     */
+    public CompletableFuture<TransportResponse> executeAsync(final Supplier<CompletableFuture<TransportResponse>> attempt, final Supplier<CompletableFuture<TransportResponse>> hedge) {
+        requests.increment();
+        deposit();
+        final CompletableFuture<TransportResponse> primary = primary(attempt);
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        final AtomicBoolean hedged = new AtomicBoolean();
+
+        final ScheduledFuture<?> timer = SdkExecutors.scheduler().schedule(() -> {
+            hedged.set(true);
+            final CompletableFuture<TransportResponse> second = primary.isDone() || result.isDone() ? null : hedge(hedge);
+            if (second == null) {
+                // 第一个请求的回调可能已经因为 hedged 跳过，重复完成没有影响
+                primary.whenComplete((resp, err) -> complete(result, resp, err));
+                return;
+            }
+            race(primary, second).whenComplete((resp, err) -> {
+                cancel(primary, second);
+                complete(result, resp, err);
+            });
+            result.whenComplete((resp, err) -> {
+                if (result.isCancelled()) {
+                    second.cancel(true);
+                }
+            });
+        }, currentDelay(), TimeUnit.MILLISECONDS);
+
+        primary.whenComplete((resp, err) -> {
+            if (!hedged.get()) {
+                timer.cancel(false);
+                complete(result, resp, err);
+            }
+        });
+        return Transports.propagateCancel(result, primary);
+    }
+
+    /**
+     * 发送第一个请求，记录它自身的耗时
+     * 如果记录对冲后的总耗时，或者取消时的耗时，分位数会被拉低，对冲延迟越来越短
+     */
+    private CompletableFuture<TransportResponse> primary(final Supplier<CompletableFuture<TransportResponse>> attempt) {
+        final long start = System.nanoTime();
+        final CompletableFuture<TransportResponse> primary = attempt.get();
+        primary.whenComplete((resp, err) -> {
+            if (err == null) {
+                record(System.nanoTime() - start);
+            }
+        });
+        return primary;
+    }
+
+    /**
+     * 在预算内发送对冲请求，没有并发额度时退还预算
+     *
+     * @return 没有发送时为 null
+     */
+    private CompletableFuture<TransportResponse> hedge(final Supplier<CompletableFuture<TransportResponse>> hedge) {
+        if (!tryHedge()) {
+            return null;
+        }
+        final CompletableFuture<TransportResponse> second = hedge.get();
+        if (second == null) {
+            refund();
+            skipped.increment();
+            return null;
+        }
+        hedges.increment();
+        return second;
+    }
+
+    /**
+     * 两个请求中先成功返回的结果，对冲请求的结果被使用时计入 hedgeWins
+     */
+    private CompletableFuture<TransportResponse> race(final CompletableFuture<TransportResponse> primary, final CompletableFuture<TransportResponse> second) {
+        return first(primary, second).whenComplete((resp, err) -> {
+            if (resp != null && second.isDone() && !second.isCompletedExceptionally() && second.getNow(null) == resp) {
+                hedgeWins.increment();
+            }
+        });
+    }
+
+    /**
+     * 取消较慢的请求，已经结束的请求不受影响；自适应延迟时保留第一个请求用于记录耗时
+     */
+    private void cancel(final CompletableFuture<TransportResponse> primary, final CompletableFuture<TransportResponse> second) {
+        second.cancel(true);
+        if (delay > 0) {
+            primary.cancel(true);
+        }
+    }
+
+    private static void complete(final CompletableFuture<TransportResponse> result, final TransportResponse resp, final Throwable err) {
+        if (err != null) {
+            result.completeExceptionally(err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+        } else {
+            result.complete(resp);
+        }
+    }
+
+    /**
+     * 当前的对冲延迟
+     *
+     * @return 毫秒
+     */
+    public long currentDelay() {
+        if (delay > 0) {
+            return delay;
+        }
+        long p = observed;
+        return p > 0 ? p : initialDelay;
+    }
+
+    /**
+     * 两个请求中先成功返回的结果，5xx 响应和异常只在另一个也结束时才返回
+     */
+    private static CompletableFuture<TransportResponse> first(final CompletableFuture<TransportResponse> a, final CompletableFuture<TransportResponse> b) {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(2);
+        BiConsumer<TransportResponse, Throwable> complete = (resp, err) -> {
+            boolean ok = err == null && resp.getStatus() < 500;
+            if (pending.decrementAndGet() == 0 || ok) {
+                if (err != null) {
+                    result.completeExceptionally(err);
+                } else {
+                    result.complete(resp);
+                }
+            }
+        };
+        a.whenComplete(complete);
+        b.whenComplete(complete);
+        return result;
+    }
+
+    private static TransportResponse await(final CompletableFuture<TransportResponse> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when waiting for response.", e);
+        }
+    }
+
+    private static Exception unwrap(final ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new ChatbotException(String.valueOf(cause), cause);
+    }
+
+    private synchronized void record(final long elapsedNanos) {
+        samples[next] = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        next = (next + 1) % SAMPLES;
+        if (count < SAMPLES) {
+            count++;
+        }
+        // 每 16 个样本重新计算一次分位数
+        if (count >= minSamples && (next & 15) == 0) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            observed = Math.max(1, sorted[(int) Math.min(count - 1, Math.floor(percentile * count))]);
+        }
+    }
+
+    private boolean tryHedge() {
+        while (true) {
+            long b = budget.get();
+            if (b < TOKEN) {
+                return false;
+            }
+            if (budget.compareAndSet(b, b - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private void refund() {
+        long cap = maxBurst * TOKEN;
+        while (true) {
+            long b = budget.get();
+            if (budget.compareAndSet(b, Math.min(cap, b + TOKEN))) {
+                return;
+            }
+        }
+    }
+
+    private void deposit() {
+        long add = (long) (maxHedgeRatio * TOKEN);
+        long cap = maxBurst * TOKEN;
+        while (true) {
+            long b = budget.get();
+            long n = Math.min(cap, b + add);
+            if (n == b || budget.compareAndSet(b, n)) {
+                return;
+            }
+        }
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * 设置固定的对冲延迟
+     *
+     * @param delay 毫秒，为 0 时按观测到的延迟分位数自适应
+     */
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    public void setMaxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    public void setMaxBurst(int maxBurst) {
+        this.maxBurst = maxBurst;
+        this.budget.set(maxBurst * TOKEN);
+    }
+
+    /**
+     * 经过对冲策略的请求数
+     *
+     * @return
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 发送的对冲请求数
+     *
+     * @return
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * 对冲请求先返回的次数
+     *
+     * @return
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 因为没有并发额度而放弃的对冲请求数
+     *
+     * @return
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 使用 jackson-core 流式读写的编解码，仍然返回 org.json 的 JSONObject
+ * jackson-core 是可选依赖，在 classpath 中时由 {@link JsonCodecs} 自动选用
+ * 数字的类型和 org.json 一致：整数为 Integer, Long 或 BigInteger，小数为 BigDecimal
+ */
+public class JacksonCodec implements JsonCodec {
+    private final JsonFactory factory = new JsonFactory();
+
+    @Override
+    public byte[] encode(final JSONObject json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator g = factory.createGenerator(out)) {
+            write(g, json);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public JSONObject decode(final byte[] body) throws JSONException {
+        try (JsonParser p = factory.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JSONException("A JSONObject text must begin with '{'");
+            }
+            JSONObject json = readObject(p);
+            if (p.nextToken() != null) {
+                throw new JSONException("Unexpected content after JSONObject");
+            }
+            return json;
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "jackson";
+    }
+
+    private static JSONObject readObject(final JsonParser p) throws IOException {
+        JSONObject json = new JSONObject();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            json.put(name, readValue(p, p.nextToken()));
+        }
+        return json;
+    }
+
+    private static JSONArray readArray(final JsonParser p) throws IOException {
+        JSONArray array = new JSONArray();
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            array.put(readValue(p, t));
+        }
+        return array;
+    }
+
+    private static Object readValue(final JsonParser p, final JsonToken t) throws IOException {
+        if (t == null) {
+            throw new JSONException("Unexpected end of JSON");
+        }
+        switch (t) {
+            case START_OBJECT:
+                return readObject(p);
+            case START_ARRAY:
+                return readArray(p);
+            case VALUE_STRING:
+                return p.getText();
+            case VALUE_NUMBER_INT:
+                switch (p.getNumberType()) {
+                    case INT:
+                        return p.getIntValue();
+                    case LONG:
+                        return p.getLongValue();
+                    default:
+                        return p.getBigIntegerValue();
+                }
+            case VALUE_NUMBER_FLOAT:
+                return p.getDecimalValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return JSONObject.NULL;
+            default:
+                throw new JSONException("Unexpected token " + t);
+        }
+    }
+
+    private static void write(final JsonGenerator g, final Object value) throws IOException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            g.writeNull();
+        } else if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            g.writeStartObject();
+            for (String key : json.keySet()) {
+                g.writeFieldName(key);
+                write(g, json.opt(key));
+            }
+            g.writeEndObject();
+        } else if (value instanceof JSONArray) {
+            g.writeStartArray();
+            for (Object item : (JSONArray) value) {
+                write(g, item);
+            }
+            g.writeEndArray();
+        } else if (value instanceof String) {
+            g.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            g.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            g.writeNumber(((Number) value).longValue());
+        } else if (value instanceof BigInteger) {
+            g.writeNumber((BigInteger) value);
+        } else if (value instanceof BigDecimal) {
+            g.writeNumber((BigDecimal) value);
+        } else if (value instanceof Number) {
+            // 和 org.json 一致，NaN 和 Infinity 不是合法的 JSON
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new JSONException("JSON does not allow non-finite numbers.");
+            }
+            g.writeRawValue(JSONObject.numberToString((Number) value));
+        } else {
+            g.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于 JDK HttpClient 的传输层，服务端支持时使用 HTTP/2 多路复用
+ * 需要 Java 11+，通过 {@link Transports#jdk(ConnectionConfig)} 创建；这里是 Java 11 以下版本的占位实现
+ */
+public class JdkHttpTransport implements Transport {
+
+    JdkHttpTransport(final ConnectionConfig config) {
+        throw new UnsupportedOperationException("JdkHttpTransport requires Java 11+.");
+    }
+
+    /**
+     * 当前运行环境是否支持，Java 11+ 使用 META-INF/versions/11 中的实现
+     *
+     * @return
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public TransportResponse request(final String method, final String url, final JSONObject body, final Map<String, String> headers) throws ChatbotException {
+        throw new UnsupportedOperationException("JdkHttpTransport requires Java 11+.");
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> requestAsync(final String method, final String url, final JSONObject body, final Map<String, String> headers) {
+        throw new UnsupportedOperationException("JdkHttpTransport requires Java 11+.");
+    }
+
+    @Override
+    public TransportResponse upload(final String url, final Map<String, String> headers, final File file, final Map<String, String> fields) throws ChatbotException {
+        throw new UnsupportedOperationException("JdkHttpTransport requires Java 11+.");
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * JSON 编解码：请求体直接序列化为字节，响应体直接从字节解析
+ * 默认实现由 {@link JsonCodecs#getDefault()} 在运行时选择
+ */
+public interface JsonCodec {
+
+    /**
+     * 序列化为 UTF-8 字节
+     *
+     * @param json
+     * @return
+     */
+    byte[] encode(JSONObject json);
+
+    /**
+     * 从 UTF-8 字节解析 JSON 对象
+     *
+     * @param body
+     * @return
+     * @throws JSONException 不是合法的 JSON 对象
+     */
+    JSONObject decode(byte[] body) throws JSONException;
+
+    String getName();
+}
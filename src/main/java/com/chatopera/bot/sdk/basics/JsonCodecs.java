@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+/**
+ * 选择 JSON 编解码的实现
+ * classpath 中有 jackson-core 时使用 {@link JacksonCodec}，否则使用 {@link OrgJsonCodec}
+ * 可以通过系统属性 chatopera.sdk.json=org.json 关闭自动选择
+ */
+public final class JsonCodecs {
+    private static volatile JsonCodec codec = detect();
+
+    private JsonCodecs() {
+    }
+
+    public static JsonCodec getDefault() {
+        return codec;
+    }
+
+    /**
+     * 设置全局使用的编解码，RestAPI 和 JdkHttpTransport 的请求和响应都使用该实现
+     *
+     * @param codec
+     */
+    public static void setDefault(final JsonCodec codec) {
+        JsonCodecs.codec = codec == null ? new OrgJsonCodec() : codec;
+    }
+
+    /**
+     * jackson-core 是否在 classpath 中
+     *
+     * @return
+     */
+    public static boolean isJacksonAvailable() {
+        try {
+            Class.forName("com.fasterxml.jackson.core.JsonFactory", false, JsonCodecs.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static JsonCodec detect() {
+        if (!"org.json".equals(System.getProperty("chatopera.sdk.json")) && isJacksonAvailable()) {
+            try {
+                // 通过反射创建，没有 jackson-core 时不加载 JacksonCodec
+                return (JsonCodec) Class.forName("com.chatopera.bot.sdk.basics.JacksonCodec").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall back to org.json
+            }
+        }
+        return new OrgJsonCodec();
+    }
+}
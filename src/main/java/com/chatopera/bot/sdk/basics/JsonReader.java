@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import org.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式读取 UTF-8 编码的 JSON，直接从字节解析，不生成 JSONObject
+ * 用法和 Gson 的 JsonReader 类似：beginObject, hasNext, nextName, nextString, skipValue, endObject
+ * 格式错误时抛出 JSONException
+ */
+public class JsonReader {
+
+    /**
+     * 从 JsonReader 读取一个值
+     *
+     * @param <T>
+     */
+    public interface Decoder<T> {
+        T read(JsonReader reader) throws JSONException;
+    }
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+
+    public JsonReader(final byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public JsonReader(final byte[] buf, final int offset, final int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * 下一个值的类型，跳过空白和逗号
+     *
+     * @return
+     */
+    public Token peek() {
+        skipSeparators();
+        if (pos >= limit) {
+            return Token.END_DOCUMENT;
+        }
+        switch (buf[pos]) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    public void beginObject() {
+        expect('{');
+    }
+
+    public void endObject() {
+        expect('}');
+    }
+
+    public void beginArray() {
+        expect('[');
+    }
+
+    public void endArray() {
+        expect(']');
+    }
+
+    /**
+     * 当前对象或数组是否还有元素
+     *
+     * @return
+     */
+    public boolean hasNext() {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    /**
+     * 读取字段名和冒号
+     *
+     * @return
+     */
+    public String nextName() {
+        skipSeparators();
+        String name = readString();
+        skipWhitespace();
+        if (pos >= limit || buf[pos] != ':') {
+            throw error("Expected :");
+        }
+        pos++;
+        return name;
+    }
+
+    /**
+     * 读取字符串；数字和布尔值返回原文，null 返回 null
+     *
+     * @return
+     */
+    public String nextString() {
+        switch (peek()) {
+            case STRING:
+                return readString();
+            case NULL:
+                readLiteral();
+                return null;
+            case NUMBER:
+            case BOOLEAN:
+                return readLiteral();
+            default:
+                throw error("Expected a string");
+        }
+    }
+
+    /**
+     * 读取数字，字符串形式的数字也可以读取，null 返回 fallback
+     *
+     * @param fallback
+     * @return
+     */
+    public double nextDouble(final double fallback) {
+        Token t = peek();
+        if (t == Token.NULL) {
+            readLiteral();
+            return fallback;
+        }
+        String s = t == Token.STRING ? readString() : readLiteral();
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw error("Expected a number but was " + s);
+        }
+    }
+
+    /**
+     * 读取整数，null 返回 fallback
+     *
+     * @param fallback
+     * @return
+     * @throws JSONException 超出 int 的范围
+     */
+    public int nextInt(final int fallback) {
+        Token t = peek();
+        if (t == Token.NUMBER) {
+            // 常见的小整数直接解析，不生成字符串
+            int start = pos;
+            boolean negative = buf[pos] == '-';
+            int i = negative ? pos + 1 : pos;
+            long value = 0;
+            while (i < limit && buf[i] >= '0' && buf[i] <= '9' && i - start < 10) {
+                value = value * 10 + (buf[i] - '0');
+                i++;
+            }
+            value = negative ? -value : value;
+            if (i > start + (negative ? 1 : 0) && (i >= limit || isDelimiter(buf[i]))
+                    && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                pos = i;
+                return (int) value;
+            }
+        }
+        double d = nextDouble(fallback);
+        if (d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            throw error("Integer out of range: " + d);
+        }
+        return (int) d;
+    }
+
+    /**
+     * 读取布尔值，null 返回 fallback
+     *
+     * @param fallback
+     * @return
+     */
+    public boolean nextBoolean(final boolean fallback) {
+        Token t = peek();
+        if (t == Token.NULL) {
+            readLiteral();
+            return fallback;
+        }
+        if (t != Token.BOOLEAN) {
+            throw error("Expected a boolean");
+        }
+        return "true".equals(readLiteral());
+    }
+
+    /**
+     * 跳过下一个值，包括嵌套的对象和数组
+     */
+    public void skipValue() {
+        skipSeparators();
+        int depth = 0;
+        do {
+            if (pos >= limit) {
+                throw error("Unexpected end of JSON");
+            }
+            byte c = buf[pos];
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+                pos++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                pos++;
+            } else if (c == ',' || c == ':' || isWhitespace(c)) {
+                pos++;
+            } else {
+                readLiteral();
+            }
+        } while (depth > 0);
+    }
+
+    private String readString() {
+        if (pos >= limit || buf[pos] != '"') {
+            throw error("Expected a string");
+        }
+        final int start = ++pos;
+        while (pos < limit) {
+            byte c = buf[pos];
+            if (c == '"') {
+                return new String(buf, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+            if (c == '\\') {
+                return readEscaped(start);
+            }
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * 读取包含转义字符的字符串
+     *
+     * @param start 字符串内容的起始位置
+     * @return
+     */
+    private String readEscaped(final int start) {
+        StringBuilder sb = new StringBuilder(pos - start + 16);
+        sb.append(new String(buf, start, pos - start, StandardCharsets.UTF_8));
+        int segment = pos;
+        while (pos < limit) {
+            byte c = buf[pos];
+            if (c == '"') {
+                sb.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+                pos++;
+                return sb.toString();
+            }
+            if (c != '\\') {
+                pos++;
+                continue;
+            }
+            sb.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+            if (pos + 1 >= limit) {
+                break;
+            }
+            byte e = buf[pos + 1];
+            pos += 2;
+            switch (e) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > limit) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(new String(buf, pos, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    // \" \\ \/
+                    sb.append((char) e);
+            }
+            segment = pos;
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipString() {
+        for (pos = pos + 1; pos < limit; pos++) {
+            byte c = buf[pos];
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                pos++;
+                return;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * 读取数字、true、false 或 null 的原文
+     *
+     * @return
+     */
+    private String readLiteral() {
+        final int start = pos;
+        while (pos < limit && !isDelimiter(buf[pos])) {
+            pos++;
+        }
+        if (pos == start) {
+            throw error("Unexpected character");
+        }
+        return new String(buf, start, pos - start, StandardCharsets.US_ASCII);
+    }
+
+    private void expect(final char c) {
+        skipSeparators();
+        if (pos >= limit || buf[pos] != c) {
+            throw error("Expected " + c);
+        }
+        pos++;
+    }
+
+    private void skipSeparators() {
+        while (pos < limit && (buf[pos] == ',' || isWhitespace(buf[pos]))) {
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit && isWhitespace(buf[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(final byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isDelimiter(final byte c) {
+        return c == ',' || c == '}' || c == ']' || c == ':' || isWhitespace(c);
+    }
+
+    private JSONException error(final String msg) {
+        return new JSONException(msg + " at " + pos);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只扫描 JSON 对象的第一层，记录每个字段的值在文本中的位置，嵌套的对象和数组只跳过不解析
+ */
+final class JsonScanner {
+
+    private JsonScanner() {
+    }
+
+    /**
+     * 扫描 JSON 对象的第一层字段
+     *
+     * @param json
+     * @return 字段名到值的位置 {start, end}
+     * @throws JSONException 不是合法的 JSON 对象
+     */
+    static Map<String, int[]> members(final String json) throws JSONException {
+        Map<String, int[]> members = new HashMap<>();
+        int i = skipWhitespace(json, 0);
+        expect(json, i, '{');
+        i = skipWhitespace(json, i + 1);
+        if (i < json.length() && json.charAt(i) == '}') {
+            return members;
+        }
+        while (true) {
+            expect(json, i, '"');
+            int keyEnd = skipString(json, i);
+            String key = json.substring(i + 1, keyEnd - 1);
+            if (key.indexOf('\\') >= 0) {
+                key = unescape(key);
+            }
+            i = skipWhitespace(json, keyEnd);
+            expect(json, i, ':');
+            int start = skipWhitespace(json, i + 1);
+            int end = skipValue(json, start);
+            members.put(key, new int[]{start, end});
+            i = skipWhitespace(json, end);
+            if (i < json.length() && json.charAt(i) == ',') {
+                i = skipWhitespace(json, i + 1);
+                continue;
+            }
+            expect(json, i, '}');
+            return members;
+        }
+    }
+
+    /**
+     * 跳过一个值
+     *
+     * @param json
+     * @param i    值的起始位置
+     * @return 值之后的位置
+     */
+    static int skipValue(final String json, int i) throws JSONException {
+        if (i >= json.length()) {
+            throw new JSONException("Unexpected end of JSON at " + i);
+        }
+        final char c = json.charAt(i);
+        if (c == '"') {
+            return skipString(json, i);
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (; i < json.length(); i++) {
+                char x = json.charAt(i);
+                if (x == '"') {
+                    i = skipString(json, i) - 1;
+                } else if (x == '{' || x == '[') {
+                    depth++;
+                } else if (x == '}' || x == ']') {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+            throw new JSONException("Unexpected end of JSON at " + i);
+        }
+        // 数字、true、false、null
+        int start = i;
+        while (i < json.length()) {
+            char x = json.charAt(i);
+            if (x == ',' || x == '}' || x == ']' || Character.isWhitespace(x)) {
+                break;
+            }
+            i++;
+        }
+        if (i == start) {
+            throw new JSONException("Unexpected character " + c + " at " + start);
+        }
+        return i;
+    }
+
+    /**
+     * 跳过字符串
+     *
+     * @param json
+     * @param i    引号的位置
+     * @return 结束引号之后的位置
+     */
+    static int skipString(final String json, int i) throws JSONException {
+        for (i = i + 1; i < json.length(); i++) {
+            char x = json.charAt(i);
+            if (x == '\\') {
+                i++;
+            } else if (x == '"') {
+                return i + 1;
+            }
+        }
+        throw new JSONException("Unterminated string at " + i);
+    }
+
+    static int skipWhitespace(final String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void expect(final String json, final int i, final char c) throws JSONException {
+        if (i >= json.length() || json.charAt(i) != c) {
+            throw new JSONException("Expected " + c + " at " + i);
+        }
+    }
+
+    private static String unescape(final String s) {
+        return new JSONTokener("\"" + s + "\"").nextValue().toString();
+    }
+}
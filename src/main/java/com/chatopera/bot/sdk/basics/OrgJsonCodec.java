@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 使用 org.json 的编解码，没有其它依赖
+ */
+public class OrgJsonCodec implements JsonCodec {
+
+    @Override
+    public byte[] encode(final JSONObject json) {
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JSONObject decode(final byte[] body) throws JSONException {
+        return new JSONObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName() {
+        return "org.json";
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求 Path 模版，比如 /faq/database/{id}/extend 或 /faq/database?page={page}&limit={limit}&q={q}
+ * 模版只解析一次；展开时参数按 RFC 3986 编码，空格编码为 %20
+ * 查询参数的值为 null 时，整个参数被省略，方便表示可选的检索条件；没有 = 号的参数（比如 ?flag）原样保留
+ */
+public class PathTemplate {
+    private final String template;
+    private final String[] segments;        // Path 部分的固定内容，变量插在相邻两段之间
+    private final String[] names;           // 查询参数名，已经编码，有 = 号时包括 = 号
+    private final String[] values;          // 查询参数的固定值，为 null 时是变量
+    private final int variables;
+    private final int length;               // 固定内容的长度，用来估计展开后的长度
+
+    private PathTemplate(final String template, final List<String> segments, final List<String> names, final List<String> values) {
+        this.template = template;
+        this.segments = segments.toArray(new String[0]);
+        this.names = names.toArray(new String[0]);
+        this.values = values.toArray(new String[0]);
+
+        int vars = this.segments.length - 1;
+        int len = 0;
+        for (String s : this.segments) {
+            len += s.length();
+        }
+        for (int i = 0; i < this.names.length; i++) {
+            len += this.names[i].length() + 1;
+            if (this.values[i] == null) {
+                vars++;
+            } else {
+                len += this.values[i].length();
+            }
+        }
+        this.variables = vars;
+        this.length = len;
+    }
+
+    /**
+     * 解析模版
+     *
+     * @param template
+     * @return
+     * @throws IllegalArgumentException 模版格式错误
+     */
+    public static PathTemplate compile(final String template) {
+        if (template == null || !template.startsWith("/")) {
+            throw new IllegalArgumentException("Path template should start with /, " + template);
+        }
+
+        final int q = template.indexOf('?');
+        final String path = q < 0 ? template : template.substring(0, q);
+
+        List<String> segments = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int open = path.indexOf('{', from);
+            if (open < 0) {
+                break;
+            }
+            int close = path.indexOf('}', open);
+            if (close < 0 || close == open + 1) {
+                throw new IllegalArgumentException("Invalid variable in path template, " + template);
+            }
+            segments.add(path.substring(from, open));
+            from = close + 1;
+        }
+        segments.add(path.substring(from));
+        for (String s : segments) {
+            if (s.indexOf('}') >= 0) {
+                throw new IllegalArgumentException("Invalid variable in path template, " + template);
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        if (q >= 0) {
+            for (String pair : template.substring(q + 1).split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                if (name.indexOf('{') >= 0 || name.indexOf('}') >= 0) {
+                    throw new IllegalArgumentException("Query parameter name can not be a variable, " + template);
+                }
+                names.add(eq < 0 ? encode(name) : encode(name) + "=");
+                if (value.startsWith("{") && value.endsWith("}") && value.length() > 2) {
+                    values.add(null);
+                } else if (value.indexOf('{') >= 0 || value.indexOf('}') >= 0) {
+                    throw new IllegalArgumentException("Invalid variable in path template, " + template);
+                } else {
+                    values.add(value);
+                }
+            }
+        }
+
+        return new PathTemplate(template, segments, names, values);
+    }
+
+    /**
+     * 展开模版，写入 sb
+     *
+     * @param sb
+     * @param args 变量的值，按在模版中出现的顺序；查询参数的值可以为 null
+     * @return 是否写入了查询参数
+     * @throws ChatbotException 参数个数不对，或者 Path 变量为 null
+     */
+    public boolean expand(final StringBuilder sb, final Object... args) throws ChatbotException {
+        final int n = args == null ? 0 : args.length;
+        if (n != variables) {
+            throw new ChatbotException("Path template " + template + " requires " + variables + " arguments, but got " + n + ".");
+        }
+
+        int a = 0;
+        sb.append(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            Object arg = args[a++];
+            if (arg == null) {
+                throw new ChatbotException("Path variable " + i + " of " + template + " can not be null.");
+            }
+            appendEncoded(sb, arg.toString());
+            sb.append(segments[i]);
+        }
+
+        boolean query = false;
+        for (int i = 0; i < names.length; i++) {
+            String literal = values[i];
+            Object arg = literal == null ? args[a++] : null;
+            if (literal == null && arg == null) {
+                continue;
+            }
+            sb.append(query ? '&' : '?').append(names[i]);
+            if (literal != null) {
+                sb.append(literal);
+            } else {
+                appendEncoded(sb, arg.toString());
+            }
+            query = true;
+        }
+        return query;
+    }
+
+    /**
+     * 展开模版
+     *
+     * @param args 变量的值，按在模版中出现的顺序；查询参数的值可以为 null
+     * @return
+     * @throws ChatbotException
+     */
+    public String expand(final Object... args) throws ChatbotException {
+        StringBuilder sb = new StringBuilder(estimate());
+        expand(sb, args);
+        return sb.toString();
+    }
+
+    /**
+     * 展开后长度的估计值，用于预分配
+     *
+     * @return
+     */
+    public int estimate() {
+        return length + 16 * variables;
+    }
+
+    public int getVariables() {
+        return variables;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * 按 RFC 3986 编码 Path 或查询参数中的值，只保留非保留字符 A-Z a-z 0-9 - . _ ~
+     *
+     * @param value
+     * @return
+     */
+    public static String encode(final String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        appendEncoded(sb, value);
+        return sb.toString();
+    }
+
+    private static boolean isUnreserved(final int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static void appendEncoded(final StringBuilder sb, final String value) {
+        int i = 0;
+        final int n = value.length();
+        while (i < n && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+        if (i == n) {
+            sb.append(value);
+            return;
+        }
+        sb.append(value, 0, i);
+        for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xFF;
+            if (isUnreserved(c)) {
+                sb.append((char) c);
+            } else {
+                sb.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.sdk.models.QueryMessage;
+import com.chatopera.bot.sdk.models.QueryReply;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * 查询管道，QueryProcessor 的实现，不依赖 java.util.concurrent.Flow
+ * 上游最多请求 maxConcurrency 条消息，回复按消息的顺序、在下游有需求时发出，每发出一条回复再向上游请求一条
+ * 因此进行中的查询和未发出的回复合计不超过 maxConcurrency；单条查询失败作为带 error 的回复发出，不结束流
+ */
+class QueryPipeline {
+
+    private final Function<QueryMessage, CompletableFuture<JSONObject>> query;
+    private final int maxConcurrency;
+
+    private final ConcurrentLinkedQueue<Slot> slots = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile LongConsumer upstreamRequest;
+    private volatile Runnable upstreamCancel;
+    private volatile Consumer<QueryReply> onNext;
+    private volatile Consumer<Throwable> onError;
+    private volatile Runnable onComplete;
+
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    QueryPipeline(final Function<QueryMessage, CompletableFuture<JSONObject>> query, final int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency should be positive.");
+        }
+        this.query = query;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 连接上游
+     *
+     * @param request 向上游请求消息
+     * @param cancel  取消上游
+     */
+    void onSubscribe(final LongConsumer request, final Runnable cancel) {
+        this.upstreamRequest = request;
+        this.upstreamCancel = cancel;
+        request.accept(maxConcurrency);
+    }
+
+    void onNext(final QueryMessage message) {
+        final Slot slot = new Slot();
+        slots.offer(slot);
+
+        CompletableFuture<JSONObject> future;
+        try {
+            future = query.apply(message);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((result, err) -> {
+            Throwable cause = (err instanceof CompletionException && err.getCause() != null) ? err.getCause() : err;
+            slot.reply = new QueryReply(message, result, cause);
+            drain();
+        });
+    }
+
+    void onError(final Throwable e) {
+        error = e;
+        done = true;
+        drain();
+    }
+
+    void onComplete() {
+        done = true;
+        drain();
+    }
+
+    /**
+     * 连接下游
+     */
+    void subscribe(final Consumer<QueryReply> onNext, final Consumer<Throwable> onError, final Runnable onComplete) {
+        this.onNext = onNext;
+        this.onError = onError;
+        this.onComplete = onComplete;
+        drain();
+    }
+
+    /**
+     * 下游请求 n 条回复
+     *
+     * @param n
+     */
+    void request(final long n) {
+        if (n <= 0) {
+            cancel();
+            Consumer<Throwable> e = onError;
+            if (e != null) {
+                e.accept(new IllegalArgumentException("Requested " + n + " items, should be positive."));
+            }
+            return;
+        }
+        demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+        drain();
+    }
+
+    /**
+     * 下游取消
+     */
+    void cancel() {
+        cancelled = true;
+        Runnable c = upstreamCancel;
+        if (c != null) {
+            c.run();
+        }
+        drain();
+    }
+
+    /**
+     * 发出回复，同一时间只有一个线程执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            if (cancelled) {
+                slots.clear();
+                return;
+            }
+
+            Consumer<QueryReply> next = onNext;
+            if (next != null && !terminated) {
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested) {
+                    Slot slot = slots.peek();
+                    if (slot == null || slot.reply == null) {
+                        break;
+                    }
+                    slots.poll();
+                    next.accept(slot.reply);
+                    emitted++;
+                    if (cancelled) {
+                        slots.clear();
+                        return;
+                    }
+                }
+
+                if (emitted > 0) {
+                    if (requested != Long.MAX_VALUE) {
+                        demand.addAndGet(-emitted);
+                    }
+                    if (!done) {
+                        upstreamRequest.accept(emitted);
+                    }
+                }
+
+                if (done && slots.isEmpty()) {
+                    terminated = true;
+                    if (error != null) {
+                        onError.accept(error);
+                    } else {
+                        onComplete.run();
+                    }
+                }
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private static class Slot {
+        private volatile QueryReply reply;
+    }
+}
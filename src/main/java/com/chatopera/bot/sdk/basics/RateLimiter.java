@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.exception.RateLimitedException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 客户端限流，令牌桶（GCRA 实现，无锁），交互请求和批量请求使用不同的额度
+ * 交互请求：对话、知识库查询、意图识别和语音识别；其它请求，比如知识库导入、词典维护，都是批量请求
+ * 收到 429 时降低速率，之后每次成功逐步恢复；Retry-After 和 RateLimit-Remaining/Reset 响应头会暂停发送直到额度恢复
+ */
+public class RateLimiter {
+
+    public enum Kind {
+        INTERACTIVE, BULK
+    }
+
+    private final Bucket interactive;
+    private final Bucket bulk;
+    private boolean blocking = true;            // 超出额度时等待，否则直接抛出 RateLimitedException
+    private long maxWait = 30000;               // 最长等待时间，毫秒
+    private int maxSlowdown = 16;               // 收到 429 后速率最多降低的倍数
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder tooManyRequests = new LongAdder();
+
+    /**
+     * 默认交互请求每秒 50 次，批量请求每秒 10 次
+     */
+    public RateLimiter() {
+        this(50, 50, 10, 10);
+    }
+
+    /**
+     * @param interactiveRate  交互请求每秒次数
+     * @param interactiveBurst 交互请求允许的突发次数
+     * @param bulkRate         批量请求每秒次数
+     * @param bulkBurst        批量请求允许的突发次数
+     */
+    public RateLimiter(final double interactiveRate, final int interactiveBurst, final double bulkRate, final int bulkBurst) {
+        this.interactive = new Bucket(interactiveRate, interactiveBurst);
+        this.bulk = new Bucket(bulkRate, bulkBurst);
+    }
+
+    /**
+     * 根据请求判断类型
+     *
+     * @param method
+     * @param path
+     * @return
+     */
+    public static Kind kindOf(final String method, final String path) {
+        if (StringUtils.equals(method, "POST") && (StringUtils.startsWith(path, "/conversation/query")
+                || StringUtils.startsWith(path, "/faq/query")
+                || StringUtils.startsWith(path, "/clause/prover")
+                || StringUtils.startsWith(path, "/asr/recognize"))) {
+            return Kind.INTERACTIVE;
+        }
+        return Kind.BULK;
+    }
+
+    /**
+     * 获取一次请求的额度，阻塞模式下等待，最长 maxWait
+     *
+     * @param kind
+     * @throws ChatbotException 超出额度或等待被中断
+     */
+    public void acquire(final Kind kind) throws ChatbotException {
+        if (!blocking) {
+            if (!tryAcquire(kind)) {
+                throw new RateLimitedException("Rate limited, " + kind);
+            }
+            return;
+        }
+
+        long wait = bucket(kind).reserve(TimeUnit.MILLISECONDS.toNanos(maxWait));
+        if (wait < 0) {
+            rejected.increment();
+            throw new RateLimitedException("Rate limited, " + kind + " waits longer than " + maxWait + "ms");
+        }
+        if (wait > 0) {
+            throttled.increment();
+            long deadline = System.nanoTime() + wait;
+            for (long left = wait; left > 0; left = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(this, left);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new ChatbotException("Interrupted when waiting for rate limiter.");
+                }
+            }
+        }
+    }
+
+    /**
+     * 尝试获取一次请求的额度，不等待
+     *
+     * @param kind
+     * @return 是否获得额度
+     */
+    public boolean tryAcquire(final Kind kind) {
+        if (bucket(kind).reserve(0) == 0) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 根据服务端的响应调整速率
+     *
+     * @param kind
+     * @param resp
+     */
+    public void onResponse(final Kind kind, final TransportResponse resp) {
+        Bucket b = bucket(kind);
+        if (resp.getStatus() == 429) {
+            tooManyRequests.increment();
+            b.slowDown(maxSlowdown);
+            if (b != bulk) {
+                bulk.slowDown(maxSlowdown);
+            }
+            pause(kind, Math.max(1000, seconds(resp.getHeader("Retry-After")) * 1000));
+            return;
+        }
+
+        if (resp.getStatus() < 500) {
+            b.recover();
+        }
+        String remaining = firstHeader(resp, "X-RateLimit-Remaining", "RateLimit-Remaining");
+        if (StringUtils.equals(StringUtils.trim(remaining), "0")) {
+            long reset = seconds(firstHeader(resp, "X-RateLimit-Reset", "RateLimit-Reset"));
+            // 大于 10^9 的值是 epoch 秒
+            if (reset > 1000000000L) {
+                reset = reset - System.currentTimeMillis() / 1000;
+            }
+            pause(kind, Math.max(reset, 1) * 1000);
+        }
+    }
+
+    private void pause(final Kind kind, final long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.min(millis, maxWait));
+        bucket(kind).pause(nanos);
+        bulk.pause(nanos);
+    }
+
+    private Bucket bucket(final Kind kind) {
+        return kind == Kind.INTERACTIVE ? interactive : bulk;
+    }
+
+    private static String firstHeader(final TransportResponse resp, final String... names) {
+        for (String name : names) {
+            String value = resp.getHeader(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static long seconds(final String value) {
+        String v = StringUtils.trim(value);
+        if (StringUtils.isNotEmpty(v) && StringUtils.isNumeric(v)) {
+            try {
+                return Long.parseLong(v);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 令牌桶，按 GCRA 记录理论到达时间 tat，每次请求把 tat 向后推一个发送间隔
+     */
+    private static class Bucket {
+        private final long baseInterval;        // 配置速率对应的发送间隔，纳秒
+        private final int burst;
+        private final AtomicLong tat;
+        private final AtomicLong interval;      // 当前的发送间隔，收到 429 后变大
+
+        Bucket(final double rate, final int burst) {
+            this.baseInterval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            this.burst = Math.max(1, burst);
+            this.tat = new AtomicLong(System.nanoTime());
+            this.interval = new AtomicLong(baseInterval);
+        }
+
+        /**
+         * 预约一次发送
+         *
+         * @param maxWait 纳秒
+         * @return 需要等待的纳秒数，超过 maxWait 时返回 -1 且不预约
+         */
+        long reserve(final long maxWait) {
+            while (true) {
+                long now = System.nanoTime();
+                long t = tat.get();
+                long iv = interval.get();
+                long start = t - now > 0 ? t : now;
+                long wait = start - iv * (burst - 1) - now;
+                if (wait > maxWait) {
+                    return -1;
+                }
+                if (tat.compareAndSet(t, start + iv)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+
+        void pause(final long nanos) {
+            final long until = System.nanoTime() + nanos + interval.get() * (burst - 1);
+            tat.accumulateAndGet(until, (t, u) -> u - t > 0 ? u : t);
+        }
+
+        void slowDown(final int maxSlowdown) {
+            interval.updateAndGet(iv -> Math.min(baseInterval * maxSlowdown, iv * 2));
+        }
+
+        void recover() {
+            long iv = interval.get();
+            if (iv > baseInterval) {
+                interval.compareAndSet(iv, Math.max(baseInterval, iv - iv / 20));
+            }
+        }
+
+        double rate() {
+            return (double) TimeUnit.SECONDS.toNanos(1) / interval.get();
+        }
+    }
+
+    /**
+     * 当前的速率，收到 429 后会低于配置值
+     *
+     * @param kind
+     * @return 每秒次数
+     */
+    public double getRate(final Kind kind) {
+        return bucket(kind).rate();
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * 设置阻塞模式
+     *
+     * @param blocking true 时等待额度，false 时直接抛出 RateLimitedException
+     */
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getMaxSlowdown() {
+        return maxSlowdown;
+    }
+
+    public void setMaxSlowdown(int maxSlowdown) {
+        this.maxSlowdown = maxSlowdown;
+    }
+
+    /**
+     * 等待额度的次数
+     *
+     * @return
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * 因超出额度而拒绝的次数
+     *
+     * @return
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 收到 429 的次数
+     *
+     * @return
+     */
+    public long getTooManyRequests() {
+        return tooManyRequests.sum();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 不解析的响应：HTTP 状态码、响应头、rc 和去掉 chatbotID 的响应体
+ * 用于网关直接转发服务端的返回值，响应体在接收到的数组上过滤，不再经过 JSONObject 和 Response
+ */
+public class RawResponse {
+    private final int status;
+    private final Map<String, String> headers;
+    private final int rc;
+    private final byte[] body;
+    private final int length;
+
+    /**
+     * 过滤传输层的响应体，会修改 raw 的响应体数组
+     *
+     * @param raw
+     */
+    public RawResponse(final TransportResponse raw) {
+        this.status = raw.getStatus();
+        this.headers = raw.getHeaders();
+        this.body = raw.getBody();
+        ChatbotIdFilter filter = new ChatbotIdFilter();
+        filter.apply(body, body.length);
+        this.rc = filter.getRc();
+        this.length = filter.getLength();
+    }
+
+    /**
+     * HTTP 状态码
+     *
+     * @return
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 响应头，名称不区分大小写；Content-Length 是过滤之前的长度，转发时使用 {@link #getLength()}
+     *
+     * @return
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getHeader(final String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * 返回值 code，响应体不是 JSON 对象或者没有 rc 时为 -1
+     *
+     * @return
+     */
+    public int getRc() {
+        return rc;
+    }
+
+    /**
+     * 响应体的字节数
+     *
+     * @return
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 响应体，去掉了 chatbotID 时复制一份
+     *
+     * @return
+     */
+    public byte[] getBody() {
+        return length == body.length ? body : Arrays.copyOf(body, length);
+    }
+
+    /**
+     * 只读的响应体，不复制
+     *
+     * @return
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(body, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 将响应体写入输出流，不复制
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(body, 0, length);
+    }
+}
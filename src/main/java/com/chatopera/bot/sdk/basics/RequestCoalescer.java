@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONObject;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并（single-flight）：相同的请求正在发送时，后来的调用等待它的结果，不再发送
+ * 只合并同时进行中的请求，请求返回后不缓存结果；每个调用方收到各自的 Response 副本，可以修改
+ */
+public class RequestCoalescer {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Response>> inflight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 请求的键，由请求方法、路径和请求体组成
+     *
+     * @param method
+     * @param path
+     * @param payload
+     * @return
+     */
+    public static String key(final String method, final String path, final JSONObject payload) {
+        StringBuilder sb = new StringBuilder(method).append(' ').append(path);
+        if (payload != null) {
+            sb.append('\n').append(payload.toString());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 执行请求，相同的请求正在进行时等待它的结果
+     * 共享的结果不交给任何调用方，每个调用方收到它的副本，参考 {@link Response#copy()}
+     *
+     * @param key
+     * @param call
+     * @return
+     * @throws ChatbotException
+     */
+    public Response execute(final String key, final Callable<Response> call) throws ChatbotException {
+        requests.increment();
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> leader = inflight.putIfAbsent(key, future);
+        if (leader != null) {
+            coalesced.increment();
+            return copy(await(leader));
+        }
+
+        final Response resp;
+        try {
+            resp = call.call();
+            future.complete(resp);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw asChatbotException(e);
+        } finally {
+            inflight.remove(key, future);
+        }
+        return copy(resp);
+    }
+
+    /**
+     * 执行异步请求，相同的请求（包括同步请求）正在进行时返回它的结果
+     *
+     * @param key
+     * @param call 发送一次异步请求
+     * @return
+     */
+    public CompletableFuture<Response> executeAsync(final String key, final Supplier<CompletableFuture<Response>> call) {
+        requests.increment();
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> leader = inflight.putIfAbsent(key, future);
+        if (leader != null) {
+            coalesced.increment();
+            return leader.thenApply(RequestCoalescer::copy);
+        }
+
+        CompletableFuture<Response> sent;
+        try {
+            sent = call.get();
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        sent.whenComplete((resp, err) -> {
+            // 先移除再完成，之后到达的调用发送新的请求
+            inflight.remove(key, future);
+            if (err != null) {
+                future.completeExceptionally(err);
+            } else {
+                future.complete(resp);
+            }
+        });
+        return future.thenApply(RequestCoalescer::copy);
+    }
+
+    private static Response copy(final Response resp) {
+        return resp == null ? null : resp.copy();
+    }
+
+    private static Response await(final CompletableFuture<Response> future) throws ChatbotException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asChatbotException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when waiting for coalesced request.", e);
+        }
+    }
+
+    private static ChatbotException asChatbotException(final Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            return asChatbotException(e.getCause());
+        }
+        if (e instanceof ChatbotException) {
+            return (ChatbotException) e;
+        }
+        return new ChatbotException(String.valueOf(e), e);
+    }
+
+    /**
+     * 经过合并层的调用数
+     *
+     * @return
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 被合并、没有发送请求的调用数
+     *
+     * @return
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 合并比例，被合并的调用数 / 总调用数
+     *
+     * @return
+     */
+    public double getCoalescingRatio() {
+        long total = requests.sum();
+        return total == 0 ? 0 : (double) coalesced.sum() / total;
+    }
+
+    /**
+     * 正在进行中的请求数
+     *
+     * @return
+     */
+    public int getInflight() {
+        return inflight.size();
+    }
+}
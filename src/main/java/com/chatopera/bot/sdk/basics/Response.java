@@ -20,7 +20,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
+import java.util.Map;
+
+/**
+ * 服务端返回值
+ * 通过 {@link #lazy(String)} 创建时只扫描第一层字段，data 和 status 在第一次读取时才解析，同时去掉 chatbotID
+ */
 public class Response {
     private int rc;                // 返回值 code
     private String msg;            // 返回值 消息
@@ -37,6 +44,152 @@ public class Response {
     public final static String DATA_JSON_OBJECT = "JSONObject";
     public final static String DATA_NULL = "null";
 
+    // 延迟解析时保留原始文本，解析 data 和 status 后释放
+    private String raw;
+    private int[] dataSpan;
+    private int[] statusSpan;
+
+    /**
+     * 创建延迟解析的 Response，只解析 rc、msg、error 和分页信息
+     *
+     * @param json 服务端返回的 JSON 文本
+     * @return
+     * @throws ChatbotException 不是合法的 JSON 对象，没有 rc，或者 data 不是对象、数组或字符串
+     */
+    public static Response lazy(final String json) throws ChatbotException {
+        final Map<String, int[]> members;
+        try {
+            members = JsonScanner.members(json);
+        } catch (JSONException e) {
+            throw new ChatbotException("Unable to parser input as JSON.", e);
+        }
+
+        Response resp = new Response();
+        try {
+            if (!members.containsKey("rc")) {
+                throw new ChatbotException("Invalid result, rc is missing.");
+            }
+            resp.rc = toInt(value(json, members.get("rc")));
+
+            if (members.containsKey("error")) {
+                Object error = value(json, members.get("error"));
+                resp.error = error.toString();
+            }
+            if (members.containsKey("msg")) {
+                Object msg = value(json, members.get("msg"));
+                resp.msg = JSONObject.NULL.equals(msg) ? "" : msg.toString();
+            }
+            if (members.containsKey("total")) {
+                resp.total = toInt(value(json, members.get("total")));
+            }
+            if (members.containsKey("current_page")) {
+                resp.current_page = toInt(value(json, members.get("current_page")));
+            }
+            if (members.containsKey("total_page")) {
+                resp.total_page = toInt(value(json, members.get("total_page")));
+            }
+            // data 不是对象或数组时立即按 setData 处理，与非延迟解析的结果一致
+            int[] data = members.get("data");
+            if (data != null && json.charAt(data[0]) != '{' && json.charAt(data[0]) != '[') {
+                resp.setData(value(json, data));
+                members.remove("data");
+            }
+        } catch (JSONException | NumberFormatException e) {
+            throw new ChatbotException("Unable to parser input as JSON.", e);
+        }
+
+        resp.dataSpan = members.get("data");
+        resp.statusSpan = members.get("status");
+        if (resp.dataSpan != null || resp.statusSpan != null) {
+            resp.raw = json;
+        }
+        return resp;
+    }
+
+    private static Object value(final String json, final int[] span) {
+        return new JSONTokener(json.substring(span[0], span[1])).nextValue();
+    }
+
+    private static int toInt(final Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return Integer.parseInt(value.toString());
+    }
+
+    /**
+     * 延迟解析 data 和 status，成功的返回值去掉 chatbotID
+     * Response 可能被多个线程读取，解析需要同步
+     */
+    private synchronized void decode() {
+        if (raw == null) {
+            return;
+        }
+        if (dataSpan != null) {
+            Object data = value(raw, dataSpan);
+            if (data instanceof JSONObject) {
+                if (rc == 0) {
+                    ((JSONObject) data).remove("chatbotID");
+                }
+                dataObj = (JSONObject) data;
+            } else if (data instanceof JSONArray) {
+                if (rc == 0) {
+                    for (Object item : (JSONArray) data) {
+                        if (item instanceof JSONObject) {
+                            ((JSONObject) item).remove("chatbotID");
+                        }
+                    }
+                }
+                dataArray = (JSONArray) data;
+            }
+        }
+        if (statusSpan != null) {
+            Object st = value(raw, statusSpan);
+            status = st instanceof JSONObject ? (JSONObject) st : new JSONObject();
+        }
+        raw = null;
+        dataSpan = null;
+        statusSpan = null;
+    }
+
+    /**
+     * 复制 Response，data 和 status 为新的实例，修改副本不影响原来的 Response
+     * 未解析的字段不在复制时解析，副本共用原始文本，读取时各自解析
+     *
+     * @return
+     */
+    public synchronized Response copy() {
+        Response resp = new Response();
+        resp.rc = rc;
+        resp.msg = msg;
+        resp.error = error;
+        resp.total = total;
+        resp.current_page = current_page;
+        resp.total_page = total_page;
+        if (dataObj != null) {
+            resp.dataObj = new JSONObject(dataObj.toString());
+        }
+        if (dataArray != null) {
+            resp.dataArray = new JSONArray(dataArray.toString());
+        }
+        if (status != null) {
+            resp.status = new JSONObject(status.toString());
+        }
+        resp.raw = raw;
+        resp.dataSpan = dataSpan;
+        resp.statusSpan = statusSpan;
+        return resp;
+    }
+
+    /**
+     * 是否还有未解析的字段
+     *
+     * @return
+     */
+    public synchronized boolean isPending() {
+        return raw != null;
+    }
+
     public int getRc() {
         return rc;
     }
@@ -67,6 +220,7 @@ public class Response {
      * @return
      */
     public Object getData() {
+        decode();
         String dataType = getDataType();
         if (StringUtils.equals(dataType, DATA_JSON_ARRAY)) {
             return dataArray;
@@ -83,6 +237,7 @@ public class Response {
      * @return
      */
     public String getDataType() {
+        decode();
         if (dataArray != null) {
             return DATA_JSON_ARRAY;
         } else if (dataObj != null) {
@@ -100,6 +255,7 @@ public class Response {
      * @throws ChatbotException
      */
     public <T> void setData(final T data) throws ChatbotException {
+        decode();
 
         if (data instanceof String) {
             String data2 = (String) data;
@@ -162,10 +318,12 @@ public class Response {
     }
 
     public JSONObject getStatus() {
+        decode();
         return status;
     }
 
     public void setStatus(JSONObject status) {
+        decode();
         this.status = status;
     }
 
@@ -15,15 +15,53 @@
  */
 package com.chatopera.bot.sdk.basics;
 
+import com.chatopera.bot.exception.ChatbotException;
 import kong.unirest.*;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * RestAPI接口
+ * RestAPI接口，基于 Unirest 的默认传输层
+ * 静态方法使用 Unirest 全局实例；创建 RestAPI 对象可以获得独立的连接池，多个客户端可以共用同一个 RestAPI 对象
  */
-public class RestAPI {
+public class RestAPI implements Transport {
+
+    private static final RestAPI DEFAULT = new RestAPI(Unirest.primaryInstance());
+    private static final byte[] EMPTY_BODY = {'{', '}'};
+
+    private final UnirestInstance unirest;
+
+    private RestAPI(final UnirestInstance unirest) {
+        this.unirest = unirest;
+    }
+
+    /**
+     * 创建独立的连接池
+     *
+     * @param config 连接池配置
+     */
+    public RestAPI(final ConnectionConfig config) {
+        this.unirest = Unirest.spawnInstance();
+        this.unirest.config()
+                .concurrency(config.getMaxConnections(), config.getMaxConnectionsPerRoute())
+                .connectTimeout(config.getConnectTimeout())
+                .socketTimeout(config.getSocketTimeout())
+                .connectionTTL(config.getConnectionTTL(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 使用 Unirest 全局实例的 RestAPI
+     *
+     * @return
+     */
+    public static RestAPI getDefault() {
+        return DEFAULT;
+    }
 
     /**
      * patch headers
@@ -59,20 +97,12 @@ public class RestAPI {
     public static JSONObject post(final String url, final JSONObject body, final HashMap<String, Object> query, HashMap<String, String> headers) throws UnirestException {
         HttpRequestWithBody request = Unirest.post(url);
         x(headers);
-        // parse response
-        HttpResponse<JsonNode> resp = request
+        HttpResponse<byte[]> resp = request
                 .headers(headers)
                 .queryString(query)
                 .body(body == null ? "{}" : body.toString())
-                .asJson();
-
-        kong.unirest.json.JSONObject obj;
-        if (resp.getBody() == null) {
-            throw new UnirestException(String.format("Unexpected result with API %s %s, statusText %s", "POST", url, resp.getStatusText()));
-        } else {
-            obj = resp.getBody().getObject();
-            return new JSONObject(obj.toString());
-        }
+                .asBytes();
+        return decode("POST", url, resp);
     }
 
     public static JSONObject post(final String url, final JSONObject body) throws UnirestException {
@@ -91,18 +121,11 @@ public class RestAPI {
     public static JSONObject get(final String url, final HashMap<String, Object> query, HashMap<String, String> headers) throws UnirestException {
         GetRequest request = Unirest.get(url);
         x(headers);
-        HttpResponse<JsonNode> resp = request
+        HttpResponse<byte[]> resp = request
                 .headers(headers)
                 .queryString(query)
-                .asJson();
-        // parse response
-        kong.unirest.json.JSONObject obj;
-        if (resp.getBody() == null) {
-            throw new UnirestException(String.format("Unexpected result with API %s %s, statusText %s", "GET", url, resp.getStatusText()));
-        } else {
-            obj = resp.getBody().getObject();
-            return new JSONObject(obj.toString());
-        }
+                .asBytes();
+        return decode("GET", url, resp);
     }
 
     public static JSONObject get(final String url) throws UnirestException {
@@ -115,17 +138,17 @@ public class RestAPI {
 
     public static JSONObject delete(final String url, HashMap<String, String> headers) throws UnirestException {
         x(headers);
-        return new JSONObject(Unirest.delete(url).headers(headers).asJson().getBody().getObject().toString());
+        return decode("DELETE", url, Unirest.delete(url).headers(headers).asBytes());
     }
 
     public static JSONObject delete(final String url, HashMap<String, String> headers, JSONObject body) throws UnirestException {
         x(headers);
-        return new JSONObject(Unirest.delete(url).headers(headers).body(body.toString()).asJson().getBody().getObject().toString());
+        return decode("DELETE", url, Unirest.delete(url).headers(headers).body(body.toString()).asBytes());
     }
 
     public static JSONObject put(final String url, HashMap<String, Object> body, HashMap<String, String> headers) throws UnirestException {
         x(headers);
-        return new JSONObject(Unirest.put(url).headers(headers).fields(body).asJson().getBody().getObject().toString());
+        return decode("PUT", url, Unirest.put(url).headers(headers).fields(body).asBytes());
     }
 
     /**
@@ -141,19 +164,146 @@ public class RestAPI {
     public static JSONObject put(final String url, final JSONObject body, final HashMap<String, Object> query, HashMap<String, String> headers) throws UnirestException {
         HttpRequestWithBody request = Unirest.put(url);
         x(headers);
-        // parse response
-        HttpResponse<JsonNode> resp = request
+        HttpResponse<byte[]> resp = request
                 .headers(headers)
                 .queryString(query)
                 .body(body.toString())
-                .asJson();
-
-        kong.unirest.json.JSONObject obj;
-        if (resp.getBody() == null) {
-            throw new UnirestException(String.format("Unexpected result with API %s %s, statusText %s", "PUT", url, resp.getStatusText()));
-        } else {
-            obj = resp.getBody().getObject();
-            return new JSONObject(obj.toString());
+                .asBytes();
+        return decode("PUT", url, resp);
+    }
+
+    /**
+     * 发送请求
+     *
+     * @param method  GET, POST, PUT, DELETE
+     * @param url
+     * @param body    请求体，GET 请求忽略该参数
+     * @param headers
+     * @return
+     * @throws UnirestException
+     */
+    @Override
+    public TransportResponse request(final String method, final String url, final JSONObject body, final Map<String, String> headers) throws UnirestException {
+        return toTransportResponse(prepare(method, url, body, headers).asBytes());
+    }
+
+    /**
+     * 异步请求，使用 Unirest 的异步客户端发送，不阻塞调用线程
+     * Unirest 的异步请求不能中止，取消返回的 Future 只结束等待，请求仍然在后台完成
+     *
+     * @param method  GET, POST, PUT, DELETE
+     * @param url
+     * @param body    请求体，GET 请求忽略该参数
+     * @param headers
+     * @return
+     */
+    @Override
+    public CompletableFuture<TransportResponse> requestAsync(final String method, final String url, final JSONObject body, final Map<String, String> headers) {
+        HttpRequest<?> request;
+        try {
+            request = prepare(method, url, body, headers);
+        } catch (UnirestException e) {
+            CompletableFuture<TransportResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        CompletableFuture<HttpResponse<byte[]>> sent = request.asBytesAsync();
+        return Transports.propagateCancel(sent.thenApply(RestAPI::toTransportResponse), sent);
+    }
+
+    /**
+     * 上传文件，multipart/form-data
+     *
+     * @param url
+     * @param headers
+     * @param file
+     * @param fields  其它表单字段
+     * @return
+     * @throws UnirestException
+     */
+    @Override
+    public TransportResponse upload(final String url, final Map<String, String> headers, final File file, final Map<String, String> fields) throws UnirestException {
+        MultipartBody request = unirest.post(url)
+                .headers(headers == null ? new HashMap<>() : headers)
+                .field("file", file);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            request.field(field.getKey(), field.getValue());
+        }
+        return toTransportResponse(request.asBytes());
+    }
+
+    /**
+     * 关闭连接池
+     * 使用全局实例时，会关闭 Unirest 全局实例
+     */
+    @Override
+    public void shutdown() {
+        unirest.shutDown();
+    }
+
+    private HttpRequest<?> prepare(final String method, final String url, final JSONObject body, final Map<String, String> headers) throws UnirestException {
+        Map<String, String> h = withDefaultHeaders(headers);
+        switch (method) {
+            case "GET":
+                return unirest.get(url).headers(h);
+            case "POST":
+                return unirest.post(url).headers(h).body(encode(body));
+            case "PUT":
+                return unirest.put(url).headers(h).body(encode(body));
+            case "DELETE":
+                if (body != null) {
+                    return unirest.delete(url).headers(h).body(encode(body));
+                }
+                return unirest.delete(url).headers(h);
+            default:
+                throw new UnirestException("Invalid requested method " + method);
+        }
+    }
+
+    /**
+     * 请求体直接序列化为字节，没有请求体时为 {}
+     *
+     * @param body
+     * @return
+     */
+    private static byte[] encode(final JSONObject body) {
+        return body == null ? EMPTY_BODY : JsonCodecs.getDefault().encode(body);
+    }
+
+    private static TransportResponse toTransportResponse(final HttpResponse<byte[]> resp) {
+        HashMap<String, String> headers = new HashMap<>();
+        for (Header header : resp.getHeaders().all()) {
+            headers.putIfAbsent(header.getName(), header.getValue());
         }
+        return new TransportResponse(resp.getStatus(), headers, resp.getBody());
+    }
+
+    /**
+     * 直接从响应体的字节解析 JSON，只解析一次
+     *
+     * @param method
+     * @param url
+     * @param resp
+     * @return
+     * @throws UnirestException 响应体不是 JSON 对象，cause 为解析时的 ChatbotException
+     */
+    private static JSONObject decode(final String method, final String url, final HttpResponse<byte[]> resp) throws UnirestException {
+        try {
+            return toTransportResponse(resp).toJSON();
+        } catch (ChatbotException e) {
+            throw new UnirestException(String.format("Unexpected result with API %s %s, statusText %s", method, url, resp.getStatusText()), e);
+        }
+    }
+
+    /**
+     * 添加默认请求头，不修改传入的 headers
+     *
+     * @param headers
+     * @return
+     */
+    private static Map<String, String> withDefaultHeaders(final Map<String, String> headers) {
+        HashMap<String, String> h = headers == null ? new HashMap<>() : new HashMap<>(headers);
+        x(h);
+        return h;
     }
 }
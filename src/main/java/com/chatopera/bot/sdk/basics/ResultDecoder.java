@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.exception.ResultException;
+import com.chatopera.bot.sdk.models.Page;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 从响应体直接解码为类型化的结果，不生成 JSONObject；chatbotID 等模型没有的字段被跳过
+ * rc 不为 0 时抛出 ResultException
+ */
+public final class ResultDecoder {
+
+    private ResultDecoder() {
+    }
+
+    /**
+     * 解码 data 为一个对象
+     *
+     * @param body 响应体
+     * @param data data 的解码器
+     * @param <T>
+     * @return 没有 data 时为 null
+     * @throws ChatbotException
+     */
+    public static <T> T decode(final byte[] body, final JsonReader.Decoder<T> data) throws ChatbotException {
+        return envelope(body, data).data;
+    }
+
+    /**
+     * 解码 data 为列表
+     *
+     * @param body 响应体
+     * @param item 列表元素的解码器
+     * @param <T>
+     * @return
+     * @throws ChatbotException
+     */
+    public static <T> List<T> decodeList(final byte[] body, final JsonReader.Decoder<T> item) throws ChatbotException {
+        List<T> items = envelope(body, list(item)).data;
+        return items == null ? Collections.<T>emptyList() : Collections.unmodifiableList(items);
+    }
+
+    /**
+     * 解码分页列表
+     *
+     * @param body 响应体
+     * @param item 列表元素的解码器
+     * @param <T>
+     * @return
+     * @throws ChatbotException
+     */
+    public static <T> Page<T> decodePage(final byte[] body, final JsonReader.Decoder<T> item) throws ChatbotException {
+        Envelope<List<T>> e = envelope(body, list(item));
+        return new Page<>(e.data, e.total, e.currentPage, e.totalPage);
+    }
+
+    private static <T> JsonReader.Decoder<List<T>> list(final JsonReader.Decoder<T> item) {
+        return reader -> {
+            List<T> items = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                items.add(item.read(reader));
+            }
+            reader.endArray();
+            return items;
+        };
+    }
+
+    private static class Envelope<T> {
+        private int rc = -1;
+        private String msg;
+        private String error;
+        private T data;
+        private int total = -1;
+        private int currentPage = -1;
+        private int totalPage = -1;
+    }
+
+    private static <T> Envelope<T> envelope(final byte[] body, final JsonReader.Decoder<T> data) throws ChatbotException {
+        Envelope<T> e = new Envelope<>();
+        boolean hasRc = false;
+        try {
+            JsonReader reader = new JsonReader(body);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "rc":
+                        e.rc = reader.nextInt(-1);
+                        hasRc = true;
+                        break;
+                    case "msg":
+                        e.msg = reader.nextString();
+                        break;
+                    case "error":
+                        if (reader.peek() == JsonReader.Token.STRING) {
+                            e.error = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    case "data":
+                        // 返回错误时 data 的格式不确定，不解码
+                        if ((hasRc && e.rc != 0) || reader.peek() == JsonReader.Token.NULL) {
+                            reader.skipValue();
+                        } else {
+                            e.data = data.read(reader);
+                        }
+                        break;
+                    case "total":
+                        e.total = reader.nextInt(-1);
+                        break;
+                    case "current_page":
+                        e.currentPage = reader.nextInt(-1);
+                        break;
+                    case "total_page":
+                        e.totalPage = reader.nextInt(-1);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (JSONException ex) {
+            throw new ChatbotException("Unable to decode result, " + ex.getMessage(), ex);
+        }
+
+        if (!hasRc) {
+            throw new ChatbotException("Invalid result, rc is missing.");
+        }
+        if (e.rc != 0) {
+            throw new ResultException(e.rc, String.format("rc %d, %s", e.rc, e.error != null ? e.error : e.msg));
+        }
+        return e;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 重试策略：指数退避 + 全抖动（full jitter），并用重试预算限制重试占请求的比例
+ * 网络异常和 429, 502, 503, 504 状态码视为可重试；一个实例可以被多个 Chatbot 共用，预算和计数也随之共用
+ */
+public class RetryPolicy {
+
+    private final static long TOKEN = 1000;     // 预算按千分之一计数
+
+    private int maxAttempts = 3;                // 最多发送次数，包括第一次
+    private long baseDelay = 100;               // 退避基数，毫秒
+    private long maxDelay = 2000;               // 退避上限，毫秒
+    private double budgetRatio = 0.1;           // 每个请求为预算增加的重试次数
+    private int minRetries = 10;                // 预算的初始值和上限，保证低流量时也可以重试
+
+    private final AtomicLong budget = new AtomicLong(minRetries * TOKEN);
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+
+    /**
+     * 执行请求，失败时按策略重试
+     *
+     * @param attempt   发送一次请求，每次调用需要重新签名
+     * @param retryable 请求是否允许重试，比如非幂等的 POST 请求不允许
+     * @return 最后一次请求的结果
+     * @throws Exception 最后一次请求的异常
+     */
+    public TransportResponse execute(final Callable<TransportResponse> attempt, final boolean retryable) throws Exception {
+        deposit();
+        for (int n = 1; ; n++) {
+            attempts.increment();
+            long retryAfter = 0;
+            try {
+                TransportResponse resp = attempt.call();
+                if (!retryable || !isRetryableStatus(resp.getStatus())) {
+                    return resp;
+                }
+                if (!tryRetry(n)) {
+                    giveUps.increment();
+                    return resp;
+                }
+                retryAfter = retryAfter(resp);
+            } catch (Exception e) {
+                if (!retryable || !isRetryable(e)) {
+                    throw e;
+                }
+                if (!tryRetry(n)) {
+                    giveUps.increment();
+                    throw e;
+                }
+            }
+            retries.increment();
+            sleep(Math.max(backoff(n), Math.min(retryAfter, maxDelay)));
+        }
+    }
+
+    /**
+     * 执行异步请求，失败时按策略重试；退避期间不占用线程，在 SdkExecutors 的定时器中发送下一次请求
+     *
+     * @param attempt   发送一次异步请求，每次调用需要重新签名
+     * @param retryable 请求是否允许重试，比如非幂等的 POST 请求不允许
+     * @return 最后一次请求的结果
+     */
+    public CompletableFuture<TransportResponse> executeAsync(final Supplier<CompletableFuture<TransportResponse>> attempt, final boolean retryable) {
+        deposit();
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        attemptAsync(attempt, retryable, 1, result);
+        return result;
+    }
+
+    private void attemptAsync(final Supplier<CompletableFuture<TransportResponse>> attempt, final boolean retryable, final int n, final CompletableFuture<TransportResponse> result) {
+        attempts.increment();
+        CompletableFuture<TransportResponse> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        future.whenComplete((resp, err) -> {
+            long delay;
+            if (err == null) {
+                if (!retryable || !isRetryableStatus(resp.getStatus())) {
+                    result.complete(resp);
+                    return;
+                }
+                if (!tryRetry(n)) {
+                    giveUps.increment();
+                    result.complete(resp);
+                    return;
+                }
+                delay = Math.max(backoff(n), Math.min(retryAfter(resp), maxDelay));
+            } else {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                if (!retryable || !isRetryable(cause)) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                if (!tryRetry(n)) {
+                    giveUps.increment();
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                delay = backoff(n);
+            }
+
+            retries.increment();
+            if (delay <= 0) {
+                attemptAsync(attempt, retryable, n + 1, result);
+                return;
+            }
+            try {
+                SdkExecutors.scheduler().schedule(() -> attemptAsync(attempt, retryable, n + 1, result), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * 网络异常可以重试
+     *
+     * @param e
+     * @return
+     */
+    protected boolean isRetryable(final Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected boolean isRetryableStatus(final int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * 第 n 次失败后的等待时长，在 [0, min(maxDelay, baseDelay * 2^(n-1))] 内随机
+     *
+     * @param n
+     * @return 毫秒
+     */
+    long backoff(final int n) {
+        long cap = baseDelay << Math.min(n - 1, 30);
+        if (cap <= 0 || cap > maxDelay) {
+            cap = maxDelay;
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private boolean tryRetry(final int n) {
+        if (n >= maxAttempts) {
+            return false;
+        }
+        while (true) {
+            long b = budget.get();
+            if (b < TOKEN) {
+                return false;
+            }
+            if (budget.compareAndSet(b, b - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private void deposit() {
+        long add = (long) (budgetRatio * TOKEN);
+        long cap = minRetries * TOKEN;
+        while (true) {
+            long b = budget.get();
+            long next = Math.min(cap, b + add);
+            if (next == b || budget.compareAndSet(b, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 读取 Retry-After 响应头，只支持秒数
+     */
+    private static long retryAfter(final TransportResponse resp) {
+        String value = resp.getHeader("Retry-After");
+        if (StringUtils.isNumeric(value) && StringUtils.isNotEmpty(value)) {
+            try {
+                return Long.parseLong(value) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static void sleep(final long millis) throws ChatbotException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when waiting for retry.", e);
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getMinRetries() {
+        return minRetries;
+    }
+
+    public void setMinRetries(int minRetries) {
+        this.minRetries = minRetries;
+        this.budget.set(minRetries * TOKEN);
+    }
+
+    /**
+     * 发送请求的总次数，包括重试
+     *
+     * @return
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * 重试的次数
+     *
+     * @return
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * 可以重试但因为次数或预算用尽而放弃的次数
+     *
+     * @return
+     */
+    public long getGiveUps() {
+        return giveUps.sum();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SDK 内部执行阻塞任务的线程池，比如预热连接、异步接口中的文件上传；以及异步接口共用的定时器
+ * Java 21+ 使用虚拟线程，每个任务一个线程；更早的版本使用按需创建的守护线程
+ */
+public class SdkExecutors {
+
+    private final static ExecutorService SHARED = newExecutor("chatopera-sdk");
+    private final static ScheduledExecutorService SCHEDULER = newScheduler();
+
+    private SdkExecutors() {
+    }
+
+    /**
+     * 是否使用虚拟线程
+     *
+     * @return
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * 创建新的线程池，使用后需要 shutdown
+     *
+     * @param name 线程名称前缀
+     * @return
+     */
+    public static ExecutorService newExecutor(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * SDK 共用的线程池，不需要 shutdown
+     *
+     * @return
+     */
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * SDK 共用的定时器，只有一个平台线程，用于异步接口中的重试退避、排队超时等，任务不能阻塞
+     *
+     * @return
+     */
+    public static ScheduledExecutorService scheduler() {
+        return SCHEDULER;
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "chatopera-sdk-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // 取消的任务立即移除，比如排队的请求提前获得执行位置
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP 传输层
+ * 默认实现为 {@link RestAPI}；在 Java 11+ 上可以通过 {@link Transports#jdk()} 使用基于 JDK HttpClient 的传输层
+ */
+public interface Transport {
+
+    /**
+     * 发送请求
+     *
+     * @param method  GET, POST, PUT, DELETE
+     * @param url
+     * @param body    请求体，GET 请求忽略该参数
+     * @param headers
+     * @return 服务端返回的原始数据
+     * @throws ChatbotException
+     */
+    TransportResponse request(String method, String url, JSONObject body, Map<String, String> headers) throws ChatbotException;
+
+    /**
+     * 异步发送请求，不阻塞调用线程
+     * 取消返回的 Future 时应当传递给底层的请求，底层客户端支持时中止请求，比如对冲请求取消较慢的一个
+     *
+     * @param method  GET, POST, PUT, DELETE
+     * @param url
+     * @param body    请求体，GET 请求忽略该参数
+     * @param headers
+     * @return
+     */
+    CompletableFuture<TransportResponse> requestAsync(String method, String url, JSONObject body, Map<String, String> headers);
+
+    /**
+     * 上传文件，multipart/form-data
+     *
+     * @param url
+     * @param headers
+     * @param file
+     * @param fields  其它表单字段
+     * @return
+     * @throws ChatbotException
+     */
+    TransportResponse upload(String url, Map<String, String> headers, File file, Map<String, String> fields) throws ChatbotException;
+
+    /**
+     * 释放连接等资源
+     */
+    void shutdown();
+}
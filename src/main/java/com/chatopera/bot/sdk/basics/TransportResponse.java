@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 传输层返回的原始数据：HTTP 状态码、响应头和响应体
+ * 响应体只在调用 {@link #toJSON()} 或 {@link #toLazyResponse()} 时解析
+ */
+public class TransportResponse {
+    private final int status;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    /**
+     * @param status  HTTP 状态码
+     * @param headers 响应头，同名响应头只保留第一个值
+     * @param body    响应体
+     */
+    public TransportResponse(final int status, final Map<String, String> headers, final byte[] body) {
+        this.status = status;
+        TreeMap<String, String> h = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            h.putAll(headers);
+        }
+        this.headers = Collections.unmodifiableMap(h);
+        this.body = body == null ? new byte[0] : body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 响应头，名称不区分大小写
+     *
+     * @return
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getHeader(final String name) {
+        return headers.get(name);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * 将响应体解析为 JSONObject，使用 {@link JsonCodecs#getDefault()}
+     *
+     * @return
+     * @throws ChatbotException 响应体不是 JSON 对象
+     */
+    public JSONObject toJSON() throws ChatbotException {
+        try {
+            return JsonCodecs.getDefault().decode(body);
+        } catch (JSONException e) {
+            throw new ChatbotException(String.format("Unexpected result, status %d", status), e);
+        }
+    }
+
+    /**
+     * 将响应体转化为延迟解析的 Response，参考 {@link Response#lazy(String)}
+     *
+     * @return
+     * @throws ChatbotException 响应体不是 JSON 对象
+     */
+    public Response toLazyResponse() throws ChatbotException {
+        try {
+            return Response.lazy(new String(body, StandardCharsets.UTF_8));
+        } catch (ChatbotException e) {
+            throw new ChatbotException(String.format("Unexpected result, status %d", status), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 创建传输层
+ */
+public class Transports {
+
+    private Transports() {
+    }
+
+    /**
+     * 基于 JDK HttpClient 的传输层，参考 {@link JdkHttpTransport}
+     *
+     * @return
+     * @throws ChatbotException 运行环境低于 Java 11
+     */
+    public static Transport jdk() throws ChatbotException {
+        return jdk(new ConnectionConfig());
+    }
+
+    /**
+     * 基于 JDK HttpClient 的传输层，参考 {@link JdkHttpTransport}
+     * 只使用 config 中的 connectTimeout 和 socketTimeout，maxConnections、maxConnectionsPerRoute 和 connectionTTL 不生效
+     *
+     * @param config
+     * @return
+     * @throws ChatbotException 运行环境低于 Java 11
+     */
+    public static Transport jdk(final ConnectionConfig config) throws ChatbotException {
+        if (!JdkHttpTransport.isSupported()) {
+            throw new ChatbotException("JdkHttpTransport requires Java 11+, current is " + System.getProperty("java.version"));
+        }
+        return new JdkHttpTransport(config);
+    }
+
+    /**
+     * 取消 derived 时同时取消 source，用于传输层返回 thenApply 等派生的 Future
+     * CompletableFuture 的取消不会传递给它依赖的 Future，不处理时取消派生的 Future 不会中止请求
+     *
+     * @param derived 由 source 派生的 Future
+     * @param source  传输层发送请求的 Future
+     * @param <T>
+     * @return derived
+     */
+    public static <T> CompletableFuture<T> propagateCancel(final CompletableFuture<T> derived, final CompletableFuture<?> source) {
+        derived.whenComplete((result, err) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 预热连接池：同时发送多个请求，让连接池提前完成 DNS 解析、TCP 连接和 TLS 握手
+ * 使用同步请求，Unirest 的同步和异步客户端使用不同的连接池，command 使用的是同步客户端
+ */
+public class Warmup {
+
+    private final static long TIMEOUT = 30000;  // 等待预热完成的最长时间，毫秒
+
+    private Warmup() {
+    }
+
+    /**
+     * 在临时线程（Java 21+ 为虚拟线程）中同时发送 connections 个请求，等待全部返回
+     *
+     * @param connections 请求数，即期望建立的连接数
+     * @param request     发送一次请求
+     * @return 成功返回（非 5xx）的请求数
+     * @throws ChatbotException 等待被中断
+     */
+    public static int run(final int connections, final Callable<TransportResponse> request) throws ChatbotException {
+        if (connections <= 0) {
+            return 0;
+        }
+
+        ExecutorService pool = SdkExecutors.newExecutor("chatopera-warmup");
+        try {
+            // 所有请求同时发出，才会建立不同的连接
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<TransportResponse>> futures = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return request.call();
+                }));
+            }
+            start.countDown();
+
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+            int ok = 0;
+            for (Future<TransportResponse> future : futures) {
+                try {
+                    TransportResponse resp = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (resp.getStatus() < 500) {
+                        ok++;
+                    }
+                } catch (ExecutionException | TimeoutException e) {
+                    // 预热失败不影响其它连接
+                }
+            }
+            return ok;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted when warming up connections.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import com.chatopera.bot.sdk.basics.JsonReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 对话的回复，不可变
+ */
+public final class ConversationReply {
+    private final String text;
+    private final String state;
+    private final String topicName;
+    private final String botName;
+    private final String provider;
+    private final String docId;
+    private final double score;
+    private final boolean fallback;
+    private final boolean unexpected;
+    private final List<FaqDoc> faq;
+
+    /**
+     * @param text       回复内容
+     * @param state      多轮对话的状态
+     * @param topicName  命中的多轮对话话题
+     * @param botName    机器人名称
+     * @param provider   回复的来源，比如 conversation, faq, intent, mute
+     * @param docId      来源为知识库时，问答对的标识
+     * @param score      来源为知识库时，问答对的相似度
+     * @param fallback   是否为兜底回复
+     * @param unexpected 是否为意外回复
+     * @param faq        知识库的建议问题
+     */
+    public ConversationReply(final String text, final String state, final String topicName, final String botName,
+                             final String provider, final String docId, final double score,
+                             final boolean fallback, final boolean unexpected, final List<FaqDoc> faq) {
+        this.text = text;
+        this.state = state;
+        this.topicName = topicName;
+        this.botName = botName;
+        this.provider = provider;
+        this.docId = docId;
+        this.score = score;
+        this.fallback = fallback;
+        this.unexpected = unexpected;
+        this.faq = faq == null ? Collections.<FaqDoc>emptyList() : Collections.unmodifiableList(new ArrayList<>(faq));
+    }
+
+    /**
+     * 从 /conversation/query 返回值的 data 读取
+     *
+     * @param reader
+     * @return
+     */
+    public static ConversationReply read(final JsonReader reader) {
+        String text = null;
+        String state = null;
+        String topicName = null;
+        String botName = null;
+        String provider = null;
+        String docId = null;
+        double score = 0;
+        boolean fallback = false;
+        boolean unexpected = false;
+        List<FaqDoc> faq = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "string":
+                    text = reader.nextString();
+                    break;
+                case "state":
+                    state = reader.nextString();
+                    break;
+                case "topicName":
+                    topicName = reader.nextString();
+                    break;
+                case "botName":
+                    botName = reader.nextString();
+                    break;
+                case "logic_is_fallback":
+                    fallback = reader.nextBoolean(false);
+                    break;
+                case "logic_is_unexpected":
+                    unexpected = reader.nextBoolean(false);
+                    break;
+                case "service":
+                    if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "provider":
+                                provider = reader.nextString();
+                                break;
+                            case "docId":
+                                docId = reader.nextString();
+                                break;
+                            case "score":
+                                score = reader.nextDouble(0);
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "faq":
+                    if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+                        reader.skipValue();
+                        break;
+                    }
+                    faq = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        faq.add(FaqDoc.read(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ConversationReply(text, state, topicName, botName, provider, docId, score, fallback, unexpected, faq);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public String getBotName() {
+        return botName;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public boolean isUnexpected() {
+        return unexpected;
+    }
+
+    public List<FaqDoc> getFaq() {
+        return faq;
+    }
+}
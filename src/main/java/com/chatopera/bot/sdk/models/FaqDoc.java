@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import com.chatopera.bot.sdk.basics.JsonReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 知识库问答对，不可变
+ * 检索结果带有相似度 score，知识库列表和详情中 score 为 0
+ */
+public final class FaqDoc {
+    private final String id;
+    private final String post;
+    private final double score;
+    private final boolean enabled;
+    private final FaqReply reply;
+    private final List<FaqReply> replies;
+    private final List<String> categories;
+
+    /**
+     * @param id         问答对标识
+     * @param post       标准问
+     * @param score      相似度
+     * @param enabled    是否启用
+     * @param reply      最佳回复，可以为 null
+     * @param replies    所有回复
+     * @param categories 分类标识
+     */
+    public FaqDoc(final String id, final String post, final double score, final boolean enabled,
+                  final FaqReply reply, final List<FaqReply> replies, final List<String> categories) {
+        this.id = id;
+        this.post = post;
+        this.score = score;
+        this.enabled = enabled;
+        this.reply = reply;
+        this.replies = replies == null ? Collections.<FaqReply>emptyList() : Collections.unmodifiableList(new ArrayList<>(replies));
+        this.categories = categories == null ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(categories));
+    }
+
+    /**
+     * 从 JSON 对象读取，chatbotID 等其它字段被跳过
+     *
+     * @param reader
+     * @return
+     */
+    public static FaqDoc read(final JsonReader reader) {
+        String id = null;
+        String post = null;
+        double score = 0;
+        boolean enabled = true;
+        FaqReply reply = null;
+        List<FaqReply> replies = null;
+        List<String> categories = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                case "docId":
+                    id = reader.nextString();
+                    break;
+                case "post":
+                    post = reader.nextString();
+                    break;
+                case "score":
+                    score = reader.nextDouble(0);
+                    break;
+                case "enabled":
+                    enabled = reader.nextBoolean(true);
+                    break;
+                case "reply":
+                    // 早期版本的 reply 是字符串
+                    if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                        reply = FaqReply.read(reader);
+                    } else {
+                        String content = reader.nextString();
+                        reply = content == null ? null : new FaqReply("plain", content, true);
+                    }
+                    break;
+                case "replies":
+                    replies = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        replies.add(FaqReply.read(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "categories":
+                    categories = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        categories.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new FaqDoc(id, post, score, enabled, reply, replies, categories);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPost() {
+        return post;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 最佳回复，没有时返回第一条启用的回复
+     *
+     * @return
+     */
+    public FaqReply getReply() {
+        if (reply != null) {
+            return reply;
+        }
+        for (FaqReply r : replies) {
+            if (r.isEnabled()) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    public List<FaqReply> getReplies() {
+        return replies;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import com.chatopera.bot.sdk.basics.JsonReader;
+
+/**
+ * 知识库问答对的一条回复，不可变
+ */
+public final class FaqReply {
+    private final String rtype;
+    private final String content;
+    private final boolean enabled;
+
+    /**
+     * @param rtype   回复类型，比如 plain, hyperlink
+     * @param content 回复内容
+     * @param enabled 是否启用
+     */
+    public FaqReply(final String rtype, final String content, final boolean enabled) {
+        this.rtype = rtype;
+        this.content = content;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 从 JSON 对象读取
+     *
+     * @param reader
+     * @return
+     */
+    public static FaqReply read(final JsonReader reader) {
+        String rtype = null;
+        String content = null;
+        boolean enabled = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "rtype":
+                    rtype = reader.nextString();
+                    break;
+                case "content":
+                    content = reader.nextString();
+                    break;
+                case "enabled":
+                    enabled = reader.nextBoolean(true);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new FaqReply(rtype, content, enabled);
+    }
+
+    public String getRtype() {
+        return rtype;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
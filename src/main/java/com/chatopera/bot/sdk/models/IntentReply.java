@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import com.chatopera.bot.sdk.basics.JsonReader;
+
+/**
+ * 意图识别对话的回复，不可变
+ */
+public final class IntentReply {
+    private final IntentSession session;
+    private final String text;
+    private final boolean fallback;
+    private final boolean proactive;
+
+    /**
+     * @param session   会话的状态
+     * @param text      回复内容
+     * @param fallback  是否为兜底回复
+     * @param proactive 是否为机器人追问槽位的回复
+     */
+    public IntentReply(final IntentSession session, final String text, final boolean fallback, final boolean proactive) {
+        this.session = session;
+        this.text = text;
+        this.fallback = fallback;
+        this.proactive = proactive;
+    }
+
+    /**
+     * 从 /clause/prover/chat 返回值的 data 读取
+     *
+     * @param reader
+     * @return
+     */
+    public static IntentReply read(final JsonReader reader) {
+        IntentSession session = null;
+        String text = null;
+        boolean fallback = false;
+        boolean proactive = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "session":
+                    session = IntentSession.read(reader);
+                    break;
+                case "message":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "textMessage":
+                                text = reader.nextString();
+                                break;
+                            case "is_fallback":
+                                fallback = reader.nextBoolean(false);
+                                break;
+                            case "is_proactive":
+                                proactive = reader.nextBoolean(false);
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new IntentReply(session, text, fallback, proactive);
+    }
+
+    public IntentSession getSession() {
+        return session;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public boolean isProactive() {
+        return proactive;
+    }
+}
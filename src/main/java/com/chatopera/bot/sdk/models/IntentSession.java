@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import com.chatopera.bot.sdk.basics.JsonReader;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 意图识别会话的状态，不可变
+ */
+public final class IntentSession {
+    private final String id;
+    private final String uid;
+    private final String channel;
+    private final String intentName;
+    private final boolean resolved;
+    private final Map<String, String> entities;
+
+    /**
+     * @param id         会话标识
+     * @param uid        用户唯一标识
+     * @param channel    渠道标识
+     * @param intentName 识别到的意图，还没有识别到时为 null
+     * @param resolved   意图的槽位是否都已经填充
+     * @param entities   槽位名称和值，没有值的槽位为 null
+     */
+    public IntentSession(final String id, final String uid, final String channel, final String intentName,
+                         final boolean resolved, final Map<String, String> entities) {
+        this.id = id;
+        this.uid = uid;
+        this.channel = channel;
+        this.intentName = intentName;
+        this.resolved = resolved;
+        this.entities = entities == null ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(entities));
+    }
+
+    /**
+     * 从 JSON 对象读取
+     *
+     * @param reader
+     * @return
+     */
+    public static IntentSession read(final JsonReader reader) {
+        String id = null;
+        String uid = null;
+        String channel = null;
+        String intentName = null;
+        boolean resolved = false;
+        Map<String, String> entities = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "uid":
+                    uid = reader.nextString();
+                    break;
+                case "channel":
+                    channel = reader.nextString();
+                    break;
+                case "intent_name":
+                    intentName = reader.nextString();
+                    break;
+                case "resolved":
+                    resolved = reader.nextBoolean(false);
+                    break;
+                case "entities":
+                    if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+                        reader.skipValue();
+                        break;
+                    }
+                    entities = new LinkedHashMap<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String name = null;
+                        String val = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "name":
+                                    name = reader.nextString();
+                                    break;
+                                case "val":
+                                    val = reader.nextString();
+                                    break;
+                                default:
+                                    reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        if (name != null) {
+                            entities.put(name, val);
+                        }
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new IntentSession(id, uid, channel, intentName, resolved, entities);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getIntentName() {
+        return intentName;
+    }
+
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    public Map<String, String> getEntities() {
+        return entities;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分页列表，不可变
+ *
+ * @param <T>
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final int total;
+    private final int currentPage;
+    private final int totalPage;
+
+    /**
+     * @param items       当前页的数据
+     * @param total       所有数据记录条数
+     * @param currentPage 当前页码，从 1 开始
+     * @param totalPage   所有页数
+     */
+    public Page(final List<T> items, final int total, final int currentPage, final int totalPage) {
+        this.items = items == null ? Collections.<T>emptyList() : Collections.unmodifiableList(new ArrayList<>(items));
+        this.total = total;
+        this.currentPage = currentPage;
+        this.totalPage = totalPage;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    public int getTotalPage() {
+        return totalPage;
+    }
+
+    public boolean hasNext() {
+        return currentPage < totalPage;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chatopera.bot.sdk.models;
+
+import org.json.JSONObject;
+
+/**
+ * 查询消息的回复，查询失败时 result 为 null，error 为异常
+ */
+public class QueryReply {
+
+    private QueryMessage message;
+    private JSONObject result;
+    private Throwable error;
+
+    public QueryReply() {
+    }
+
+    public QueryReply(QueryMessage message, JSONObject result, Throwable error) {
+        this.message = message;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * 查询是否成功，即没有异常
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public QueryMessage getMessage() {
+        return message;
+    }
+
+    public void setMessage(QueryMessage message) {
+        this.message = message;
+    }
+
+    /**
+     * 和 Chatbot#conversation, Chatbot#faq 的返回值相同
+     *
+     * @return
+     */
+    public JSONObject getResult() {
+        return result;
+    }
+
+    public void setResult(JSONObject result) {
+        this.result = result;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public void setError(Throwable error) {
+        this.error = error;
+    }
+}
@@ -51,6 +51,15 @@ public class Logger {
         System.out.println(sb.toString());
     }
 
+    /**
+     * 拼接 trace 日志内容前先检查，关闭时不产生额外开销
+     *
+     * @return
+     */
+    public static boolean isTraceEnabled() {
+        return enabled;
+    }
+
     /**
      * Set log trace on or off
      *
@@ -50,14 +50,7 @@ public class ShellUtil {
      */
     public static int command(final String cmdline,
                               final String directory) {
-        ArrayList<String> result = new ArrayList<String>();
-        int code = command(cmdline, directory, result);
-        StringBuffer sb = new StringBuffer();
-        for (final String line : result) {
-            sb.append(line);
-            sb.append("\n");
-        }
-        return code;
+        return command(cmdline, directory, null);
     }
 
     /**
@@ -74,12 +67,15 @@ public class ShellUtil {
                             .directory(new File(directory))
                             .start();
 
-            BufferedReader br = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()));
-            if (result != null) {
+            // 始终读完输出，否则输出缓冲区写满后子进程会阻塞
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(process.getInputStream()))) {
                 String line = null;
-                while ((line = br.readLine()) != null)
-                    result.add(line);
+                while ((line = br.readLine()) != null) {
+                    if (result != null) {
+                        result.add(line);
+                    }
+                }
             }
 
             // TODO: There should really be a timeout here.
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于 JDK HttpClient 的传输层，服务端支持时使用 HTTP/2 多路复用
+ * 并发请求共用少量 TCP 连接；只使用 ConnectionConfig 中的超时设置，连接数由 HttpClient 自行管理
+ * 通过 {@link Transports#jdk(ConnectionConfig)} 创建
+ */
+public class JdkHttpTransport implements Transport {
+    private static final byte[] EMPTY_BODY = {'{', '}'};
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+
+    JdkHttpTransport(final ConnectionConfig config) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeout()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = Duration.ofMillis(config.getSocketTimeout());
+    }
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public TransportResponse request(final String method, final String url, final JSONObject body, final Map<String, String> headers) throws ChatbotException {
+        HttpRequest request = prepare(method, url, body, headers);
+        try {
+            return toTransportResponse(client.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (IOException e) {
+            throw new ChatbotException(String.format("Fail to request API %s %s", method, url), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException(String.format("Interrupted when request API %s %s", method, url), e);
+        }
+    }
+
+    /**
+     * 异步请求，取消返回的 Future 时同时取消 HttpClient 的请求，Java 16+ 会中止请求
+     */
+    @Override
+    public CompletableFuture<TransportResponse> requestAsync(final String method, final String url, final JSONObject body, final Map<String, String> headers) {
+        HttpRequest request;
+        try {
+            request = prepare(method, url, body, headers);
+        } catch (ChatbotException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<HttpResponse<byte[]>> sent = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        return Transports.propagateCancel(sent.thenApply(JdkHttpTransport::toTransportResponse), sent);
+    }
+
+    @Override
+    public TransportResponse upload(final String url, final Map<String, String> headers, final File file, final Map<String, String> fields) throws ChatbotException {
+        String boundary = "----chatopera" + UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> parts = new ArrayList<>();
+        try {
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                parts.add(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field.getKey() + "\"\r\n\r\n"
+                        + field.getValue() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+            parts.add(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + file.getName()
+                    + "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            parts.add(Files.readAllBytes(file.toPath()));
+            parts.add(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ChatbotException("Fail to read file " + file.getAbsolutePath(), e);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(url))
+                .timeout(requestTimeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(parts));
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                header(builder, header.getKey(), header.getValue());
+            }
+        }
+
+        try {
+            return toTransportResponse(client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (IOException e) {
+            throw new ChatbotException(String.format("Fail to request API %s %s", "POST", url), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException(String.format("Interrupted when request API %s %s", "POST", url), e);
+        }
+    }
+
+    /**
+     * HttpClient 没有显式关闭的接口，连接在空闲超时后释放
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    private HttpRequest prepare(final String method, final String url, final JSONObject body, final Map<String, String> headers) throws ChatbotException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(url)).timeout(requestTimeout);
+        boolean hasContentType = false;
+        boolean hasAccept = false;
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                header(builder, header.getKey(), header.getValue());
+                hasContentType |= "Content-Type".equalsIgnoreCase(header.getKey());
+                hasAccept |= "Accept".equalsIgnoreCase(header.getKey());
+            }
+        }
+        if (!hasContentType) {
+            builder.header("Content-Type", "application/json");
+        }
+        if (!hasAccept) {
+            builder.header("Accept", "application/json");
+        }
+
+        switch (method) {
+            case "GET":
+                return builder.GET().build();
+            case "POST":
+            case "PUT":
+                return builder.method(method, HttpRequest.BodyPublishers.ofByteArray(body == null ? EMPTY_BODY : JsonCodecs.getDefault().encode(body))).build();
+            case "DELETE":
+                if (body != null) {
+                    return builder.method(method, HttpRequest.BodyPublishers.ofByteArray(JsonCodecs.getDefault().encode(body))).build();
+                }
+                return builder.DELETE().build();
+            default:
+                throw new ChatbotException("Invalid requested method " + method);
+        }
+    }
+
+    /**
+     * HttpClient 不会编码 url，path 或参数中有空格、中文等字符时 URI 不合法
+     *
+     * @param url
+     * @return
+     * @throws ChatbotException url 不合法
+     */
+    private static URI uri(final String url) throws ChatbotException {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new ChatbotException("Invalid url " + url + ", path and query need to be encoded.", e);
+        }
+    }
+
+    /**
+     * HttpClient 不允许设置 Host、Connection 等受限的请求头
+     *
+     * @param builder
+     * @param name
+     * @param value
+     * @throws ChatbotException 请求头不合法
+     */
+    private static void header(final HttpRequest.Builder builder, final String name, final String value) throws ChatbotException {
+        try {
+            builder.header(name, value);
+        } catch (IllegalArgumentException e) {
+            throw new ChatbotException("Invalid header " + name, e);
+        }
+    }
+
+    private static TransportResponse toTransportResponse(final HttpResponse<byte[]> resp) {
+        Map<String, String> headers = new HashMap<>();
+        resp.headers().map().forEach((name, values) -> {
+            if (!values.isEmpty()) {
+                headers.put(name, values.get(0));
+            }
+        });
+        return new TransportResponse(resp.statusCode(), headers, resp.body());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.sdk.models.QueryMessage;
+import com.chatopera.bot.sdk.models.QueryReply;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 查询消息的 java.util.concurrent.Flow.Processor，输入 QueryMessage，输出 QueryReply
+ * 订阅上游的消息流，按下游的需求发出回复（背压），同时进行的查询不超过 maxConcurrency，回复的顺序和消息一致
+ * 只支持一个下游订阅者；需要 Java 11+，只在 multi-release jar 的 META-INF/versions/11 中提供
+ * 比如对话：QueryProcessor.create(m -> chatbot.conversationAsync(m.getUserId(), m.getText()), 16)，查询经过准入队列、请求合并、熔断器和重试策略，等待回复时不占用线程
+ */
+public class QueryProcessor implements Flow.Processor<QueryMessage, QueryReply> {
+
+    private final QueryPipeline pipeline;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicBoolean hasUpstream = new AtomicBoolean();
+
+    private QueryProcessor(final Function<QueryMessage, CompletableFuture<JSONObject>> query, final int maxConcurrency) {
+        this.pipeline = new QueryPipeline(query, maxConcurrency);
+    }
+
+    /**
+     * @param query          发送一次查询，比如 Chatbot#conversationAsync 或 Chatbot#faqAsync
+     * @param maxConcurrency 最多同时进行的查询数
+     * @return
+     */
+    public static QueryProcessor create(final Function<QueryMessage, CompletableFuture<JSONObject>> query, final int maxConcurrency) {
+        return new QueryProcessor(query, maxConcurrency);
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (!hasUpstream.compareAndSet(false, true)) {
+            subscription.cancel();
+            return;
+        }
+        pipeline.onSubscribe(subscription::request, subscription::cancel);
+    }
+
+    @Override
+    public void onNext(final QueryMessage item) {
+        pipeline.onNext(item);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        pipeline.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        pipeline.onComplete();
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super QueryReply> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("QueryProcessor supports only one subscriber."));
+            return;
+        }
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                pipeline.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                pipeline.cancel();
+            }
+        });
+        pipeline.subscribe(subscriber::onNext, subscriber::onError, subscriber::onComplete);
+    }
+}
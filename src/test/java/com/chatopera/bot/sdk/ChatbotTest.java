@@ -88,6 +88,12 @@ public class ChatbotTest extends TestCase {
         System.out.println("[testConversation] resp " + resp.toString());
     }
 
+    public void testConversationAsync() throws Exception {
+        JSONObject resp = this.cb.conversationAsync("sdktest", "你好").get();
+        System.out.println("[testConversationAsync] resp " + resp.toString());
+        assertEquals(0, resp.getInt("rc"));
+    }
+
     /**
      * 测试语音识别
      *
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk;
+
+import junit.framework.TestCase;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ConversationDispatcherTest extends TestCase {
+
+    private final List<CompletableFuture<JSONObject>> calls = new ArrayList<>();
+    private final List<String> started = new ArrayList<>();
+
+    private ConversationDispatcher dispatcher(final int lanes) {
+        return new ConversationDispatcher((userId, text) -> {
+            started.add(userId + ":" + text);
+            CompletableFuture<JSONObject> f = new CompletableFuture<>();
+            calls.add(f);
+            return f;
+        }, lanes, Runnable::run);
+    }
+
+    public void testOrderPerUser() {
+        ConversationDispatcher dispatcher = dispatcher(8);
+        CompletableFuture<JSONObject> first = dispatcher.conversation("alice", "1");
+        CompletableFuture<JSONObject> second = dispatcher.conversation("alice", "2");
+
+        // 同一用户的第二条消息等待第一条完成
+        assertEquals(1, started.size());
+        assertEquals(2, dispatcher.getQueueDepth(dispatcher.laneOf("alice")));
+
+        calls.get(0).complete(new JSONObject().put("rc", 0));
+        assertTrue(first.isDone());
+        assertEquals(2, started.size());
+        assertEquals("alice:2", started.get(1));
+
+        calls.get(1).completeExceptionally(new RuntimeException("failed"));
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, dispatcher.getQueueDepth(dispatcher.laneOf("alice")));
+        assertEquals(2, dispatcher.getStarted(dispatcher.laneOf("alice")));
+    }
+
+    public void testUsersInParallel() {
+        ConversationDispatcher dispatcher = dispatcher(64);
+        String other = "bob";
+        for (int i = 0; dispatcher.laneOf(other) == dispatcher.laneOf("alice"); i++) {
+            other = "bob" + i;
+        }
+        dispatcher.conversation("alice", "1");
+        dispatcher.conversation(other, "1");
+        assertEquals(2, started.size());
+    }
+
+    public void testLongQueue() {
+        final CompletableFuture<JSONObject> gate = new CompletableFuture<>();
+        ConversationDispatcher dispatcher = new ConversationDispatcher(
+                (userId, text) -> "0".equals(text) ? gate : CompletableFuture.completedFuture(new JSONObject()), 1, Runnable::run);
+        dispatcher.conversation("alice", "0");
+        CompletableFuture<JSONObject> last = null;
+        for (int i = 1; i <= 100000; i++) {
+            last = dispatcher.conversation("alice", String.valueOf(i));
+        }
+        assertFalse(last.isDone());
+
+        // 排队的消息依次完成，不会栈溢出
+        gate.complete(new JSONObject());
+        assertTrue(last.isDone());
+        assertEquals(0, dispatcher.getQueueDepth(0));
+    }
+
+    public void testContinueOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "lane-executor"));
+        try {
+            final List<String> threads = new ArrayList<>();
+            final CompletableFuture<JSONObject> gate = new CompletableFuture<>();
+            ConversationDispatcher dispatcher = new ConversationDispatcher((userId, text) -> {
+                threads.add(Thread.currentThread().getName());
+                return "1".equals(text) ? gate : CompletableFuture.completedFuture(new JSONObject());
+            }, 1, executor);
+            dispatcher.conversation("alice", "1");
+            CompletableFuture<JSONObject> second = dispatcher.conversation("alice", "2");
+
+            // 完成第一条消息的线程不执行下一条消息
+            gate.complete(new JSONObject());
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(2, threads.size());
+            assertEquals("lane-executor", threads.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk;
+
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+
+public class PreparedCommandTest extends TestCase {
+
+    public void testPath() throws Exception {
+        Chatbot chatbot = new Chatbot("id", "secret", "http://localhost:8000");
+        PreparedCommand extend = chatbot.prepare("GET", "/faq/database/{id}/extend");
+        assertEquals("/faq/database/x%20y/extend?sdklang=java", extend.path("x y"));
+
+        PreparedCommand list = chatbot.prepare("GET", "/faq/database?page={page}&q={q}");
+        assertEquals("/faq/database?page=1&sdklang=java", list.path(1, null));
+        assertEquals("/faq/database?page=1&q=a%26b&sdklang=java", list.path(1, "a&b"));
+    }
+
+    public void testInvalid() throws Exception {
+        Chatbot chatbot = new Chatbot("id", "secret", "http://localhost:8000");
+        try {
+            chatbot.prepare("PATCH", "/faq/database");
+            fail();
+        } catch (ChatbotException e) {
+            // unsupported method
+        }
+        try {
+            chatbot.prepare("GET", "faq/database");
+            fail();
+        } catch (ChatbotException e) {
+            // not start with /
+        }
+        assertTrue(chatbot.prepare("GET", "/faq/database/{id}").executeAsync(null).isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.LoadSheddingException;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AdmissionQueueTest extends TestCase {
+
+    private static Response reply(final int rc) {
+        Response resp = new Response();
+        resp.setRc(rc);
+        return resp;
+    }
+
+    /**
+     * 占用唯一的执行位置，直到 release 被释放
+     */
+    private static Thread occupy(final AdmissionQueue queue, final CountDownLatch release) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            try {
+                queue.execute("/faq/query", null, () -> {
+                    started.countDown();
+                    release.await();
+                    return reply(0);
+                });
+            } catch (Exception e) {
+                // ignore
+            }
+        });
+        t.start();
+        started.await();
+        return t;
+    }
+
+    private static Thread enqueue(final AdmissionQueue queue, final AtomicReference<Object> outcome) {
+        Thread t = new Thread(() -> {
+            try {
+                outcome.set(queue.execute("/faq/query", null, () -> reply(0)));
+            } catch (Exception e) {
+                outcome.set(e);
+            }
+        });
+        t.start();
+        return t;
+    }
+
+    public void testReject() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setCapacity(0);
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = occupy(queue, release);
+        try {
+            queue.execute("/faq/query", null, () -> reply(0));
+            fail();
+        } catch (LoadSheddingException e) {
+            // queue is full
+        }
+        release.countDown();
+        busy.join();
+        assertEquals(1, queue.getRejected());
+        assertEquals(0, queue.execute("/faq/query", null, () -> reply(0)).getRc());
+    }
+
+    public void testDropOldest() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setCapacity(1);
+        queue.setPolicy(AdmissionQueue.Policy.DROP_OLDEST);
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = occupy(queue, release);
+
+        AtomicReference<Object> oldest = new AtomicReference<>();
+        Thread first = enqueue(queue, oldest);
+        while (queue.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+        AtomicReference<Object> newest = new AtomicReference<>();
+        Thread second = enqueue(queue, newest);
+        first.join();
+        assertTrue(oldest.get() instanceof LoadSheddingException);
+
+        release.countDown();
+        busy.join();
+        second.join();
+        assertTrue(newest.get() instanceof Response);
+        assertEquals(1, queue.getDropped());
+    }
+
+    public void testDegrade() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setCapacity(0);
+        queue.setPolicy(AdmissionQueue.Policy.DEGRADE);
+        queue.setFallback((path, payload) -> reply(1));
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = occupy(queue, release);
+        assertEquals(1, queue.execute("/faq/query", null, () -> reply(0)).getRc());
+        release.countDown();
+        busy.join();
+        assertEquals(1, queue.getDegraded());
+    }
+
+    public void testFallbackOutsideLock() throws Exception {
+        final AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setCapacity(0);
+        queue.setPolicy(AdmissionQueue.Policy.DEGRADE);
+        final AtomicReference<Boolean> blocked = new AtomicReference<>();
+        queue.setFallback((path, payload) -> {
+            // 其它线程在 fallback 执行期间可以访问队列
+            Thread other = new Thread(queue::getQueueSize);
+            other.start();
+            try {
+                other.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            blocked.set(other.isAlive());
+            return reply(1);
+        });
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = occupy(queue, release);
+        assertEquals(1, queue.execute("/faq/query", null, () -> reply(0)).getRc());
+        release.countDown();
+        busy.join();
+        assertFalse(blocked.get());
+        assertEquals(1, queue.getRejected());
+    }
+
+    public void testDeadline() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setTimeout(100);
+
+        queue.execute("/faq/query", null, () -> {
+            Thread.sleep(80);
+            return reply(0);
+        });
+        assertTrue(queue.getServiceTime() >= 80);
+
+        // 排队 40ms 后剩余时间不足一次服务时间，不再发送
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = occupy(queue, release);
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread waiter = enqueue(queue, outcome);
+        while (queue.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(40);
+        release.countDown();
+        busy.join();
+        waiter.join();
+        assertTrue(outcome.get() instanceof LoadSheddingException);
+        assertEquals(1, queue.getExpired());
+        assertEquals(2, queue.getAdmitted());
+    }
+
+    public void testAsyncQueue() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setCapacity(1);
+
+        CompletableFuture<Response> first = new CompletableFuture<>();
+        CompletableFuture<Response> a = queue.executeAsync("/faq/query", null, () -> first);
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<Response> b = queue.executeAsync("/faq/query", null, () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(reply(1));
+        });
+        // 排队的请求不占用线程，也不发送
+        assertEquals(1, queue.getQueueSize());
+        assertEquals(0, sent.get());
+
+        // 队列已满
+        CompletableFuture<Response> c = queue.executeAsync("/faq/query", null, () -> CompletableFuture.completedFuture(reply(2)));
+        try {
+            c.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LoadSheddingException);
+        }
+
+        first.complete(reply(0));
+        assertEquals(0, a.get().getRc());
+        assertEquals(1, b.get(1, TimeUnit.SECONDS).getRc());
+        assertEquals(1, sent.get());
+        assertEquals(2, queue.getAdmitted());
+        assertEquals(1, queue.getRejected());
+        assertEquals(0, queue.getRunning());
+    }
+
+    public void testAsyncDeadline() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+        queue.setTimeout(50);
+
+        CompletableFuture<Response> first = new CompletableFuture<>();
+        queue.executeAsync("/faq/query", null, () -> first);
+        CompletableFuture<Response> waiter = queue.executeAsync("/faq/query", null, () -> CompletableFuture.completedFuture(reply(0)));
+        // 执行位置一直被占用，到期后由定时器丢弃
+        try {
+            waiter.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LoadSheddingException);
+        }
+        assertEquals(1, queue.getExpired());
+        assertEquals(0, queue.getQueueSize());
+        first.complete(reply(0));
+        assertEquals(0, queue.getRunning());
+    }
+
+    public void testMixed() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue();
+        queue.setMaxConcurrency(1);
+
+        // 异步请求释放的执行位置由排队的同步请求获得
+        CompletableFuture<Response> first = new CompletableFuture<>();
+        queue.executeAsync("/faq/query", null, () -> first);
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread waiter = enqueue(queue, outcome);
+        while (queue.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+        first.complete(reply(0));
+        waiter.join();
+        assertTrue(outcome.get() instanceof Response);
+        assertEquals(2, queue.getAdmitted());
+    }
+}
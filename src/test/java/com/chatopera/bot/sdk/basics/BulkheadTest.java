@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.BulkheadFullException;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+
+public class BulkheadTest extends TestCase {
+
+    public void testCategoryOf() {
+        assertEquals(Bulkhead.Category.QUERY, Bulkhead.categoryOf("POST", "/faq/query?sdklang=java"));
+        assertEquals(Bulkhead.Category.ASR, Bulkhead.categoryOf("POST", "/asr/recognize"));
+        assertEquals(Bulkhead.Category.ADMIN_READ, Bulkhead.categoryOf("GET", "/faq/database?page=1"));
+        assertEquals(Bulkhead.Category.ADMIN_WRITE, Bulkhead.categoryOf("POST", "/clause/dictwords"));
+    }
+
+    public void testIsolation() throws Exception {
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setLimit(Bulkhead.Category.ADMIN_READ, 1, 0);
+
+        bulkhead.acquire(Bulkhead.Category.ADMIN_READ);
+        try {
+            bulkhead.acquire(Bulkhead.Category.ADMIN_READ);
+            fail();
+        } catch (BulkheadFullException e) {
+            // no queue
+        }
+        // 后台读满了，查询不受影响
+        assertTrue(bulkhead.tryAcquire(Bulkhead.Category.QUERY));
+        bulkhead.release(Bulkhead.Category.QUERY);
+
+        assertEquals(1, bulkhead.getActive(Bulkhead.Category.ADMIN_READ));
+        assertEquals(1, bulkhead.getRejected(Bulkhead.Category.ADMIN_READ));
+        bulkhead.release(Bulkhead.Category.ADMIN_READ);
+        assertEquals(0, bulkhead.getActive(Bulkhead.Category.ADMIN_READ));
+    }
+
+    public void testQueue() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setLimit(Bulkhead.Category.ADMIN_WRITE, 1, 1);
+        bulkhead.acquire(Bulkhead.Category.ADMIN_WRITE);
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                bulkhead.acquire(Bulkhead.Category.ADMIN_WRITE);
+                acquired.countDown();
+            } catch (Exception e) {
+                // ignore
+            }
+        });
+        waiter.start();
+        while (bulkhead.getWaiting(Bulkhead.Category.ADMIN_WRITE) == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            bulkhead.acquire(Bulkhead.Category.ADMIN_WRITE);
+            fail();
+        } catch (BulkheadFullException e) {
+            // queue is full
+        }
+
+        bulkhead.release(Bulkhead.Category.ADMIN_WRITE);
+        acquired.await();
+        assertEquals(0, bulkhead.getWaiting(Bulkhead.Category.ADMIN_WRITE));
+        assertEquals(1, bulkhead.getActive(Bulkhead.Category.ADMIN_WRITE));
+    }
+
+    public void testResizeInUse() throws Exception {
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setLimit(Bulkhead.Category.ADMIN_READ, 2, 0);
+        bulkhead.acquire(Bulkhead.Category.ADMIN_READ);
+        bulkhead.acquire(Bulkhead.Category.ADMIN_READ);
+
+        // 调小后，正在执行的请求释放许可，不会超过新的限制
+        bulkhead.setLimit(Bulkhead.Category.ADMIN_READ, 1, 0);
+        assertEquals(2, bulkhead.getActive(Bulkhead.Category.ADMIN_READ));
+        bulkhead.release(Bulkhead.Category.ADMIN_READ);
+        assertFalse(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+        bulkhead.release(Bulkhead.Category.ADMIN_READ);
+        assertTrue(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+        assertFalse(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+
+        // 调大后立即可用
+        bulkhead.setLimit(Bulkhead.Category.ADMIN_READ, 3, 0);
+        assertTrue(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+        assertTrue(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+        assertFalse(bulkhead.tryAcquire(Bulkhead.Category.ADMIN_READ));
+        assertEquals(3, bulkhead.getActive(Bulkhead.Category.ADMIN_READ));
+    }
+}
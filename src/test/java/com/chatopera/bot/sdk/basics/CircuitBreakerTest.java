@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.CircuitBreakerOpenException;
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+
+public class CircuitBreakerTest extends TestCase {
+
+    private static final String KEY = "POST /faq/query";
+
+    private CircuitBreaker breaker() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.setSlidingWindowSize(10);
+        breaker.setMinimumCalls(4);
+        breaker.setOpenDuration(50);
+        breaker.setHalfOpenCalls(2);
+        return breaker;
+    }
+
+    public void testKey() {
+        assertEquals("POST /faq/query", CircuitBreaker.key("POST", "/faq/query?sdklang=java"));
+        assertEquals("PUT /faq/database/{id}/extend/{id}", CircuitBreaker.key("PUT", "/faq/database/5f3a/extend/9c1b?sdklang=java"));
+        assertEquals("GET /users/{id}/chats", CircuitBreaker.key("GET", "/users/foo/chats?page=1"));
+        assertEquals("GET /", CircuitBreaker.key("GET", "/?sdklang=java"));
+    }
+
+    public void testOpenAndRecover() throws Exception {
+        CircuitBreaker breaker = breaker();
+        breaker.onSuccess(KEY);
+        breaker.onSuccess(KEY);
+        breaker.onFailure(KEY);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(KEY));
+        breaker.onFailure(KEY);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(KEY));
+
+        try {
+            breaker.acquire(KEY);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            // fast fail
+        }
+        // other endpoints are not affected
+        breaker.acquire("GET /faq/database");
+
+        Thread.sleep(60);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(KEY));
+        breaker.acquire(KEY);
+        breaker.acquire(KEY);
+        try {
+            breaker.acquire(KEY);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            // only halfOpenCalls probes are permitted
+        }
+        breaker.onSuccess(KEY);
+        breaker.onSuccess(KEY);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(KEY));
+    }
+
+    public void testHalfOpenFailure() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(KEY);
+        }
+        Thread.sleep(60);
+        breaker.acquire(KEY);
+        breaker.onFailure(KEY);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(KEY));
+    }
+
+    public void testCallerErrorsIgnored() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 10; i++) {
+            breaker.onError(KEY, new ChatbotException("Invalid payload"));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(KEY));
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(KEY, new CompletionException(new ChatbotException("timeout", new SocketTimeoutException())));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(KEY));
+
+        // 半开状态下调用方的错误归还试探名额
+        Thread.sleep(60);
+        breaker.acquire(KEY);
+        breaker.acquire(KEY);
+        breaker.onError(KEY, new IllegalArgumentException());
+        breaker.acquire(KEY);
+        breaker.onSuccess(KEY);
+        breaker.onSuccess(KEY);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(KEY));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ConcurrencyLimitException;
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest extends TestCase {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 同时发送 limit 个请求，全部以 rtt 完成
+     */
+    private static void round(final ConcurrencyLimiter limiter, final long rtt, final boolean failed) {
+        int n = limiter.getLimit();
+        for (int i = 0; i < n; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < n; i++) {
+            limiter.release(rtt, failed);
+        }
+    }
+
+    public void testAimd() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10);
+        limiter.setAlgorithm(ConcurrencyLimiter.Algorithm.AIMD);
+
+        round(limiter, 10 * MS, false);
+        assertTrue(limiter.getLimit() > 10);
+
+        int before = limiter.getLimit();
+        round(limiter, 10 * MS, true);
+        assertTrue(limiter.getLimit() < before);
+
+        // 超过 timeout 按失败处理
+        before = limiter.getLimit();
+        round(limiter, 6000 * MS, false);
+        assertTrue(limiter.getLimit() < before);
+    }
+
+    public void testAppLimited() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10);
+        limiter.setAlgorithm(ConcurrencyLimiter.Algorithm.AIMD);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(10 * MS, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    public void testVegas() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10);
+        for (int i = 0; i < 5; i++) {
+            round(limiter, 10 * MS, false);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10);
+        assertEquals(10.0, limiter.getMinRtt(), 0.001);
+
+        // 耗时变为 4 倍，说明请求在服务端排队
+        for (int i = 0; i < 5; i++) {
+            round(limiter, 40 * MS, false);
+        }
+        assertTrue(limiter.getLimit() < grown);
+    }
+
+    public void testFastFailureKeepsMinRtt() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(40);
+        round(limiter, 100 * MS, false);
+        assertEquals(100.0, limiter.getMinRtt(), 0.001);
+
+        // 快速失败，比如连接被拒绝
+        assertTrue(limiter.tryAcquire());
+        limiter.release(20000, true);
+        assertEquals(100.0, limiter.getMinRtt(), 0.001);
+        int after = limiter.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            round(limiter, 100 * MS, false);
+        }
+        assertTrue(limiter.getLimit() >= after);
+    }
+
+    public void testReleaseWithoutSample() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10);
+        assertTrue(limiter.tryAcquire());
+        limiter.onSample(10 * MS, false);
+        limiter.onSample(12 * MS, true);
+        assertEquals(1, limiter.getInflight());
+        int limit = limiter.getLimit();
+        limiter.release();
+        assertEquals(0, limiter.getInflight());
+        assertEquals(limit, limiter.getLimit());
+        assertEquals(10.0, limiter.getMinRtt(), 0.001);
+        assertEquals(1, limiter.getDropped());
+    }
+
+    public void testLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        limiter.setMaxWait(0);
+        limiter.acquire();
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (ConcurrencyLimitException e) {
+            // limit is reached
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getRejected());
+        assertEquals(2, limiter.getInflight());
+    }
+}
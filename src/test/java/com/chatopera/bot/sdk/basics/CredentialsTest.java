@@ -18,6 +18,13 @@ package com.chatopera.bot.sdk.basics;
 import com.chatopera.bot.sdk.basics.Credentials;
 import junit.framework.TestCase;
 import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CyclicBarrier;
 
 public class CredentialsTest extends TestCase {
 
@@ -25,4 +32,50 @@ public class CredentialsTest extends TestCase {
         Credentials auth = new Credentials("ClientId", "ClientSecret");
         assertTrue(StringUtils.isNotBlank(auth.generate("path", "method")));
     }
+
+    public void testSignature() throws Exception {
+        Credentials auth = new Credentials("ClientId", "ClientSecret");
+        String[] paths = new String[]{"/api/v1/chatbot/ClientId/faq/query?sdklang=java", "/api/v1/chatbot/ClientId/clause/customdict?name=词典&sdklang=java"};
+
+        for (String path : paths) {
+            JSONObject token = new JSONObject(new String(Base64.getDecoder().decode(auth.generate("POST", path)), StandardCharsets.UTF_8));
+            assertEquals("ClientId", token.getString("appId"));
+            assertTrue(token.getString("random").matches("[0-9]{10}"));
+            assertTrue(Math.abs(Long.parseLong(token.getString("timestamp")) - System.currentTimeMillis() / 1000) <= 1);
+
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec("ClientSecret".getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+            byte[] digest = mac.doFinal(("ClientId" + token.getString("timestamp") + token.getString("random") + "POST" + path).getBytes(StandardCharsets.UTF_8));
+            StringBuilder expected = new StringBuilder();
+            for (byte b : digest) {
+                expected.append(String.format("%02x", b));
+            }
+            assertEquals(expected.toString(), token.getString("signature"));
+        }
+    }
+
+    public void testPoolBounded() throws Exception {
+        final Credentials auth = new Credentials("ClientId", "ClientSecret");
+        final int threads = Credentials.getMaxPooled() * 4;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 50; j++) {
+                        barrier.await();
+                        auth.generate("POST", "/faq/query");
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(auth.getPooled() > 0);
+        assertTrue(auth.getPooled() <= Credentials.getMaxPooled());
+    }
 }
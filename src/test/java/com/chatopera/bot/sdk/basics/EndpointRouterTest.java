@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EndpointRouterTest extends TestCase {
+
+    private final List<EndpointRouter.Endpoint> probed = new ArrayList<>();
+
+    private EndpointRouter router() {
+        EndpointRouter router = new EndpointRouter(Arrays.asList("http://a/api/v1/chatbot", "http://b/api/v1/chatbot"), probed::add);
+        router.setMaxFailures(2);
+        router.setProbeInterval(0);
+        router.setExploration(0);
+        return router;
+    }
+
+    public void testLowestLatency() {
+        EndpointRouter router = router();
+        EndpointRouter.Endpoint a = router.getEndpoints().get(0);
+        EndpointRouter.Endpoint b = router.getEndpoints().get(1);
+        router.onSuccess(a, 50000000L);
+        router.onSuccess(b, 10000000L);
+        assertSame(b, router.select());
+        router.onSuccess(b, 200000000L);
+        assertSame(a, router.select());
+    }
+
+    public void testExploration() {
+        EndpointRouter router = router();
+        router.setExploration(0.1);
+        EndpointRouter.Endpoint a = router.getEndpoints().get(0);
+        EndpointRouter.Endpoint b = router.getEndpoints().get(1);
+        router.onSuccess(a, 50000000L);
+        router.onSuccess(b, 10000000L);
+        router.onFailure(b);
+
+        // b 的延迟加倍后仍然能被选中，得到新的样本后恢复
+        int selected = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (router.select() == b) {
+                selected++;
+                router.onSuccess(b, 10000000L);
+            }
+        }
+        assertTrue(selected > 0);
+        assertTrue(b.getLatency() < a.getLatency());
+        assertFalse(b.isEjected());
+    }
+
+    public void testEjectAndProbe() {
+        EndpointRouter router = router();
+        EndpointRouter.Endpoint a = router.getEndpoints().get(0);
+        EndpointRouter.Endpoint b = router.getEndpoints().get(1);
+        router.onFailure(a);
+        assertSame(b, router.select());
+        router.onFailure(a);
+        assertTrue(a.isEjected());
+
+        router.onSuccess(b, 500000000L);
+        assertSame(b, router.select());
+        assertEquals(Arrays.asList(a), probed);
+
+        // 探测进行中，不重复探测
+        router.select();
+        assertEquals(1, probed.size());
+
+        router.onProbe(a, true);
+        assertFalse(a.isEjected());
+    }
+
+    public void testAllEjected() {
+        EndpointRouter router = router();
+        EndpointRouter.Endpoint a = router.getEndpoints().get(0);
+        EndpointRouter.Endpoint b = router.getEndpoints().get(1);
+        router.onFailure(a);
+        router.onFailure(a);
+        router.onFailure(b);
+        router.onFailure(b);
+        assertSame(a, router.select());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FaqCacheTest extends TestCase {
+
+    private static JSONObject result(final String post) {
+        return new JSONObject().put("rc", 0)
+                .put("data", new JSONArray().put(new JSONObject().put("post", post).put("score", 0.9)))
+                .put("status", new JSONObject().put("uid", "u1"));
+    }
+
+    public void testKey() {
+        assertEquals(FaqCache.key("  你好，ＡＢＣ  \t世界 ", 0.8, 0.6), FaqCache.key("你好,abc 世界", 0.8, 0.6));
+        assertFalse(FaqCache.key("你好", 0.8, 0.6).equals(FaqCache.key("你好", 0.9, 0.6)));
+        assertFalse(FaqCache.key("你好", 0.8, 0.6).equals(FaqCache.key("你好", 0.8, 0.5)));
+    }
+
+    public void testHitAndMiss() throws Exception {
+        FaqCache cache = new FaqCache();
+        final AtomicInteger calls = new AtomicInteger();
+        String key = FaqCache.key("退款", 0.8, 0.6);
+
+        JSONObject first = cache.get(key, () -> {
+            calls.incrementAndGet();
+            return result("如何退款");
+        });
+        // 未命中时和命中时的字段相同
+        assertFalse(first.has("status"));
+        assertEquals("如何退款", first.getJSONArray("data").getJSONObject(0).getString("post"));
+
+        JSONObject second = cache.get(key, () -> {
+            calls.incrementAndGet();
+            return result("如何退款");
+        });
+        assertEquals(1, calls.get());
+        assertFalse(second.has("status"));
+        assertEquals("如何退款", second.getJSONArray("data").getJSONObject(0).getString("post"));
+        // 每次返回新的实例，修改不影响缓存
+        second.getJSONArray("data").remove(0);
+        assertEquals(1, cache.get(key, () -> null).getJSONArray("data").length());
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+    }
+
+    public void testNotCached() throws Exception {
+        FaqCache cache = new FaqCache();
+        String key = FaqCache.key("退款", 0.8, 0.6);
+        assertEquals("x", cache.get(key, () -> new JSONObject().put("rc", 1).put("error", "x")).getString("error"));
+        assertEquals(0, cache.getSize());
+        try {
+            cache.get(key, () -> {
+                throw new ChatbotException("down");
+            });
+            fail();
+        } catch (ChatbotException e) {
+            assertEquals("down", e.getMessage());
+        }
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testInvalidSettings() {
+        FaqCache cache = new FaqCache();
+        try {
+            cache.setTtl(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // ttl should be positive
+        }
+        try {
+            cache.setMaxEntries(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // maxEntries should be positive
+        }
+        try {
+            cache.setStaleWhileRevalidate(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // staleWhileRevalidate can not be negative
+        }
+        cache.setStaleWhileRevalidate(0);
+        assertEquals(60000, cache.getTtl());
+        assertEquals(10000, cache.getMaxEntries());
+    }
+
+    public void testEviction() throws Exception {
+        FaqCache cache = new FaqCache();
+        cache.setMaxEntries(2);
+        cache.put("a", result("a"));
+        cache.put("b", result("b"));
+        cache.get("a", () -> null);
+        cache.put("c", result("c"));
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        // b 最近最少使用，被淘汰
+        final AtomicInteger calls = new AtomicInteger();
+        cache.get("a", () -> {
+            calls.incrementAndGet();
+            return result("a");
+        });
+        assertEquals(0, calls.get());
+
+        FaqCache weighted = new FaqCache();
+        weighted.put("a", result("a"));
+        long w = weighted.getWeight();
+        weighted.setMaxWeight(w * 2);
+        weighted.put("b", result("b"));
+        weighted.put("c", result("c"));
+        assertEquals(2, weighted.getSize());
+        assertEquals(1, weighted.getEvictions());
+        assertTrue(weighted.getWeight() <= w * 2);
+    }
+
+    public void testStaleWhileRevalidate() throws Exception {
+        FaqCache cache = new FaqCache();
+        cache.setTtl(50);
+        cache.setStaleWhileRevalidate(5000);
+        String key = FaqCache.key("退款", 0.8, 0.6);
+        cache.put(key, result("v1"));
+        Thread.sleep(80);
+
+        final AtomicInteger calls = new AtomicInteger();
+        JSONObject stale = cache.get(key, () -> {
+            calls.incrementAndGet();
+            return result("v2");
+        });
+        assertEquals("v1", stale.getJSONArray("data").getJSONObject(0).getString("post"));
+        assertEquals(1, cache.getStaleHits());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        String post = "v1";
+        while (!post.equals("v2") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            post = cache.get(key, () -> result("v3")).getJSONArray("data").getJSONObject(0).getString("post");
+        }
+        assertEquals("v2", post);
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.getMisses());
+    }
+
+    public void testExpired() throws Exception {
+        FaqCache cache = new FaqCache();
+        cache.setTtl(20);
+        cache.setStaleWhileRevalidate(0);
+        cache.put("a", result("v1"));
+        Thread.sleep(40);
+        assertEquals("v2", cache.get("a", () -> result("v2")).getJSONArray("data").getJSONObject(0).getString("post"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    public void testGetAsync() throws Exception {
+        FaqCache cache = new FaqCache();
+        final AtomicInteger calls = new AtomicInteger();
+        String key = FaqCache.key("退款", 0.8, 0.6);
+
+        JSONObject first = cache.getAsync(key, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(result("如何退款"));
+        }).get();
+        assertFalse(first.has("status"));
+
+        // 同步和异步读取同一份缓存
+        JSONObject second = cache.get(key, () -> null);
+        JSONObject third = cache.getAsync(key, () -> null).get();
+        assertEquals(1, calls.get());
+        assertEquals(first.toString(), second.toString());
+        assertEquals(first.toString(), third.toString());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testStaleWhileRevalidateAsync() throws Exception {
+        FaqCache cache = new FaqCache();
+        cache.setTtl(20);
+        cache.setStaleWhileRevalidate(10000);
+        String key = FaqCache.key("退款", 0.8, 0.6);
+        cache.put(key, result("旧的回复"));
+        Thread.sleep(30);
+
+        CompletableFuture<JSONObject> reload = new CompletableFuture<>();
+        final AtomicInteger calls = new AtomicInteger();
+        JSONObject stale = cache.getAsync(key, () -> {
+            calls.incrementAndGet();
+            return reload;
+        }).get();
+        assertEquals("旧的回复", stale.getJSONArray("data").getJSONObject(0).getString("post"));
+        // 正在重新查询时不再发送
+        cache.getAsync(key, () -> {
+            calls.incrementAndGet();
+            return reload;
+        }).get();
+        assertEquals(1, calls.get());
+
+        reload.complete(result("新的回复"));
+        JSONObject fresh = cache.get(key, () -> null);
+        assertEquals("新的回复", fresh.getJSONArray("data").getJSONObject(0).getString("post"));
+    }
+}
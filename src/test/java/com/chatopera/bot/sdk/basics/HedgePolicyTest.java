@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class HedgePolicyTest extends TestCase {
+
+    private static final TransportResponse OK = new TransportResponse(200, null, "{\"rc\":0}".getBytes());
+
+    /**
+     * 第一个请求不返回，之后的请求立即返回
+     */
+    private static Supplier<CompletableFuture<TransportResponse>> slowFirst(final AtomicInteger calls, final CompletableFuture<TransportResponse> first) {
+        return () -> calls.incrementAndGet() == 1 ? first : CompletableFuture.completedFuture(OK);
+    }
+
+    public void testHedgeWins() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(10);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+
+        assertSame(OK, policy.execute(slowFirst(calls, first)));
+        assertEquals(2, calls.get());
+        assertEquals(1, policy.getHedges());
+        assertEquals(1, policy.getHedgeWins());
+        // 固定延迟时取消较慢的第一个请求
+        assertTrue(first.isCancelled());
+    }
+
+    public void testAdaptiveKeepsPrimary() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setInitialDelay(10);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+
+        assertSame(OK, policy.execute(slowFirst(calls, first)));
+        // 自适应延迟时第一个请求继续执行，结束时记录它自身的耗时
+        assertFalse(first.isDone());
+    }
+
+    public void testHedgeCancelled() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(10);
+        CompletableFuture<TransportResponse> hedge = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            first.complete(OK);
+        }).start();
+
+        assertSame(OK, policy.execute(() -> {
+            calls.incrementAndGet();
+            return first;
+        }, () -> hedge));
+        assertEquals(1, calls.get());
+        assertEquals(1, policy.getHedges());
+        assertEquals(0, policy.getHedgeWins());
+        assertTrue(hedge.isCancelled());
+    }
+
+    public void testHedgeSkipped() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(5);
+        policy.setMaxHedgeRatio(0);
+        policy.setMaxBurst(1);
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            first.complete(OK);
+        }).start();
+
+        // 没有并发额度，等待第一个请求，退还预算
+        assertSame(OK, policy.execute(() -> first, () -> null));
+        assertEquals(0, policy.getHedges());
+        assertEquals(1, policy.getSkipped());
+        AtomicInteger calls = new AtomicInteger();
+        assertSame(OK, policy.execute(slowFirst(calls, new CompletableFuture<>())));
+        assertEquals(1, policy.getHedges());
+    }
+
+    public void testHedgeAsync() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(10);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        Supplier<CompletableFuture<TransportResponse>> attempt = slowFirst(calls, first);
+
+        assertSame(OK, policy.executeAsync(attempt, attempt).get(1, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals(1, policy.getHedgeWins());
+        assertTrue(first.isCancelled());
+
+        // 第一个请求在对冲延迟内返回，不对冲
+        assertSame(OK, policy.executeAsync(() -> CompletableFuture.completedFuture(OK), () -> {
+            fail();
+            return null;
+        }).get());
+        assertEquals(1, policy.getHedges());
+    }
+
+    public void testCancelAsync() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(1000);
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        policy.executeAsync(() -> first, () -> null).cancel(true);
+        // 取消传递到传输层的请求
+        assertTrue(first.isCancelled());
+    }
+
+    public void testDelayFromPrimaryLatency() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setInitialDelay(10);
+        policy.setMinSamples(16);
+        policy.setMaxHedgeRatio(1);
+        policy.setMaxBurst(100);
+
+        // 第一个请求 80ms 返回，对冲请求立即返回
+        for (int i = 0; i < 16; i++) {
+            final AtomicInteger calls = new AtomicInteger();
+            assertSame(OK, policy.execute(() -> calls.incrementAndGet() == 1 ?
+                    CompletableFuture.supplyAsync(() -> {
+                        try {
+                            Thread.sleep(80);
+                        } catch (InterruptedException e) {
+                            // ignore
+                        }
+                        return OK;
+                    }) : CompletableFuture.completedFuture(OK)));
+        }
+        assertEquals(16, policy.getHedgeWins());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (policy.currentDelay() == 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // 对冲后的总耗时约为 10ms，如果记录它，对冲延迟会停留在 10ms
+        assertTrue(policy.currentDelay() >= 70);
+    }
+
+    public void testNoHedgeWhenFast() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(1000);
+        assertSame(OK, policy.execute(() -> CompletableFuture.completedFuture(OK)));
+        assertEquals(0, policy.getHedges());
+    }
+
+    public void testHedgeBudget() throws Exception {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setDelay(5);
+        policy.setMaxHedgeRatio(0);
+        policy.setMaxBurst(1);
+
+        AtomicInteger calls = new AtomicInteger();
+        assertSame(OK, policy.execute(slowFirst(calls, new CompletableFuture<>())));
+
+        // 预算用尽，等待第一个请求返回
+        calls.set(0);
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            first.complete(OK);
+        }).start();
+        assertSame(OK, policy.execute(slowFirst(calls, first)));
+        assertEquals(1, calls.get());
+        assertEquals(1, policy.getHedges());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class JdkHttpTransportTest extends TestCase {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", ex -> {
+            ByteArrayOutputStream in = new ByteArrayOutputStream();
+            try (InputStream is = ex.getRequestBody()) {
+                byte[] buf = new byte[1024];
+                for (int n; (n = is.read(buf)) > 0; ) {
+                    in.write(buf, 0, n);
+                }
+            }
+            JSONObject echo = new JSONObject()
+                    .put("method", ex.getRequestMethod())
+                    .put("uri", ex.getRequestURI().getRawPath() + "?" + ex.getRequestURI().getRawQuery())
+                    .put("auth", String.valueOf(ex.getRequestHeaders().getFirst("Authorization")))
+                    .put("contentType", String.valueOf(ex.getRequestHeaders().getFirst("Content-Type")))
+                    .put("body", new String(in.toByteArray(), StandardCharsets.UTF_8));
+            byte[] out = new JSONObject().put("rc", 0).put("data", echo).toString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("X-Trace", "t1");
+            ex.sendResponseHeaders(201, out.length);
+            ex.getResponseBody().write(out);
+            ex.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop(0);
+    }
+
+    public void testRequest() throws Exception {
+        Transport transport = Transports.jdk();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "token");
+
+        TransportResponse resp = transport.request("POST", baseUrl + "/faq/query?sdklang=java", new JSONObject().put("query", "你好"), headers);
+        assertEquals(201, resp.getStatus());
+        assertEquals("t1", resp.getHeader("x-trace"));
+        JSONObject data = resp.toJSON().getJSONObject("data");
+        assertEquals("POST", data.getString("method"));
+        assertEquals("/faq/query?sdklang=java", data.getString("uri"));
+        assertEquals("token", data.getString("auth"));
+        assertEquals("application/json", data.getString("contentType"));
+        assertEquals("你好", new JSONObject(data.getString("body")).getString("query"));
+
+        resp = transport.requestAsync("GET", baseUrl + "/?sdklang=java", null, headers).get();
+        assertEquals("GET", resp.toJSON().getJSONObject("data").getString("method"));
+        assertEquals("", resp.toJSON().getJSONObject("data").getString("body"));
+    }
+
+    public void testInvalidUrl() throws Exception {
+        Transport transport = Transports.jdk();
+        try {
+            transport.request("GET", baseUrl + "/dicts/名 称?sdklang=java", null, null);
+            fail();
+        } catch (ChatbotException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        CompletableFuture<TransportResponse> future = transport.requestAsync("GET", baseUrl + "/users/a b", null, null);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ChatbotException);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+public class JsonCodecTest extends TestCase {
+
+    private final JsonCodec orgJson = new OrgJsonCodec();
+    private final JsonCodec jackson = new JacksonCodec();
+
+    public void testDetect() {
+        // jackson-core 在测试的 classpath 中
+        assertTrue(JsonCodecs.isJacksonAvailable());
+        assertEquals("jackson", JsonCodecs.getDefault().getName());
+    }
+
+    public void testDecodeParity() throws Exception {
+        byte[] body = IOUtils.toByteArray(getClass().getResourceAsStream("/fixtures/faq_query.json"));
+        JSONObject expected = orgJson.decode(body);
+        JSONObject actual = jackson.decode(body);
+        assertTrue(expected.similar(actual));
+
+        JSONObject top = actual.getJSONArray("data").getJSONObject(0);
+        assertEquals(orgJson.decode(body).getJSONArray("data").getJSONObject(0).get("score").getClass(), top.get("score").getClass());
+        assertEquals(0.95, top.getDouble("score"), 1e-9);
+    }
+
+    public void testNumbersAndNull() {
+        byte[] body = "{\"i\": 1, \"l\": 12345678901, \"d\": 0.5, \"n\": null, \"a\": [true, \"x\"]}".getBytes(StandardCharsets.UTF_8);
+        JSONObject j = jackson.decode(body);
+        assertEquals(Integer.class, j.get("i").getClass());
+        assertEquals(Long.class, j.get("l").getClass());
+        assertEquals(BigDecimal.class, j.get("d").getClass());
+        assertTrue(j.isNull("n"));
+        assertTrue(j.similar(orgJson.decode(body)));
+    }
+
+    public void testEncodeParity() {
+        JSONObject body = new JSONObject();
+        body.put("fromUserId", "u1");
+        body.put("query", "你好 \"引号\"\n");
+        body.put("isDebug", false);
+        body.put("faqBestReplyThreshold", 0.8);
+        body.put("faqSuggReplyThreshold", 0.6f);
+        body.put("page", 3);
+        body.put("categories", new JSONArray().put("c1").put(JSONObject.NULL));
+        body.put("session", new JSONObject().put("id", "s1"));
+
+        byte[] a = orgJson.encode(body);
+        byte[] b = jackson.encode(body);
+        assertTrue(new JSONObject(new String(a, StandardCharsets.UTF_8)).similar(new JSONObject(new String(b, StandardCharsets.UTF_8))));
+        assertTrue(new String(b, StandardCharsets.UTF_8).contains("\"faqBestReplyThreshold\":0.8"));
+    }
+
+    public void testInvalid() {
+        try {
+            jackson.decode("[1]".getBytes(StandardCharsets.UTF_8));
+            fail();
+        } catch (JSONException e) {
+            // not an object
+        }
+        try {
+            jackson.decode("{\"a\": ".getBytes(StandardCharsets.UTF_8));
+            fail();
+        } catch (JSONException e) {
+            // truncated
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+import org.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+
+public class JsonReaderTest extends TestCase {
+
+    private static JsonReader reader(final String json) {
+        return new JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void testValues() {
+        JsonReader r = reader("{\"s\": \"你好\\n\\\"x\\\" \\u4e16\", \"i\": -42, \"d\": 0.95, \"b\": true, \"n\": null, \"big\": 12345678901}");
+        r.beginObject();
+        assertEquals("s", r.nextName());
+        assertEquals("你好\n\"x\" 世", r.nextString());
+        assertEquals("i", r.nextName());
+        assertEquals(-42, r.nextInt(0));
+        assertEquals("d", r.nextName());
+        assertEquals(0.95, r.nextDouble(0), 1e-9);
+        assertEquals("b", r.nextName());
+        assertTrue(r.nextBoolean(false));
+        assertEquals("n", r.nextName());
+        assertEquals(JsonReader.Token.NULL, r.peek());
+        assertNull(r.nextString());
+        assertEquals("big", r.nextName());
+        assertEquals("12345678901", r.nextString());
+        assertFalse(r.hasNext());
+        r.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, r.peek());
+    }
+
+    public void testSkipValue() {
+        JsonReader r = reader("[{\"a\": [1, {\"b\": \"]}\"}], \"c\": {}}, 7]");
+        r.beginArray();
+        r.skipValue();
+        assertTrue(r.hasNext());
+        assertEquals(7, r.nextInt(0));
+        assertFalse(r.hasNext());
+        r.endArray();
+    }
+
+    public void testInvalid() {
+        try {
+            JsonReader r = reader("{\"a\" 1}");
+            r.beginObject();
+            r.nextName();
+            fail();
+        } catch (JSONException e) {
+            // missing colon
+        }
+        try {
+            reader("\"abc").nextString();
+            fail();
+        } catch (JSONException e) {
+            // unterminated
+        }
+        try {
+            reader("9999999999").nextInt(0);
+            fail();
+        } catch (JSONException e) {
+            // out of int range
+        }
+        try {
+            reader("-2147483649").nextInt(0);
+            fail();
+        } catch (JSONException e) {
+            // out of int range
+        }
+        assertEquals(Integer.MAX_VALUE, reader("2147483647").nextInt(0));
+        assertEquals(Integer.MIN_VALUE, reader("-2147483648").nextInt(0));
+    }
+}
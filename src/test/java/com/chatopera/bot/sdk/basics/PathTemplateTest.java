@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+
+public class PathTemplateTest extends TestCase {
+
+    public void testPathVariables() throws Exception {
+        PathTemplate template = PathTemplate.compile("/faq/database/{id}/extend/{extendId}");
+        assertEquals(2, template.getVariables());
+        assertEquals("/faq/database/a%2Fb/extend/%E4%BD%A0%20%E5%A5%BD", template.expand("a/b", "你 好"));
+    }
+
+    public void testQueryVariables() throws Exception {
+        PathTemplate template = PathTemplate.compile("/faq/database?page={page}&limit={limit}&q={q}&category={category}");
+        assertEquals("/faq/database?page=1&limit=30&category=a%26b%3Dc",
+                template.expand(1, 30, null, "a&b=c"));
+        assertEquals("/faq/database?page=1&limit=30&q=%E9%97%AE%E9%A2%98%2B1",
+                template.expand(1, 30, "问题+1", null));
+
+        StringBuilder sb = new StringBuilder();
+        assertFalse(PathTemplate.compile("/users?q={q}").expand(sb, (Object) null));
+        assertEquals("/users", sb.toString());
+    }
+
+    public void testLiteralQuery() throws Exception {
+        PathTemplate template = PathTemplate.compile("/users/{id}/chats?page={page}&sortby=-lasttime");
+        assertEquals("/users/u1/chats?page=2&sortby=-lasttime", template.expand("u1", 2));
+    }
+
+    public void testBareQuery() throws Exception {
+        PathTemplate template = PathTemplate.compile("/faq/database?flag&q={q}&empty=");
+        assertEquals("/faq/database?flag&q=a&empty=", template.expand("a"));
+        assertEquals("/faq/database?flag&empty=", template.expand((Object) null));
+    }
+
+    public void testInvalid() throws Exception {
+        try {
+            PathTemplate.compile("/faq/{id");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // unclosed variable
+        }
+        try {
+            PathTemplate.compile("/faq/database/{id}").expand();
+            fail();
+        } catch (ChatbotException e) {
+            // missing argument
+        }
+        try {
+            PathTemplate.compile("/faq/database/{id}").expand((Object) null);
+            fail();
+        } catch (ChatbotException e) {
+            // null path variable
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.chatopera.bot.sdk.models.QueryMessage;
+import com.chatopera.bot.sdk.models.QueryReply;
+import junit.framework.TestCase;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class QueryPipelineTest extends TestCase {
+
+    private final List<CompletableFuture<JSONObject>> calls = new ArrayList<>();
+    private final List<QueryReply> replies = new ArrayList<>();
+    private long upstreamRequested;
+    private boolean completed;
+
+    private QueryPipeline pipeline(final int maxConcurrency) {
+        QueryPipeline pipeline = new QueryPipeline(m -> {
+            CompletableFuture<JSONObject> f = new CompletableFuture<>();
+            calls.add(f);
+            return f;
+        }, maxConcurrency);
+        pipeline.onSubscribe(n -> upstreamRequested += n, () -> {
+        });
+        pipeline.subscribe(replies::add, e -> fail(e.toString()), () -> completed = true);
+        return pipeline;
+    }
+
+    private static JSONObject result(final int i) {
+        JSONObject j = new JSONObject();
+        j.put("rc", 0);
+        j.put("i", i);
+        return j;
+    }
+
+    public void testOrderAndBackpressure() {
+        QueryPipeline pipeline = pipeline(2);
+        assertEquals(2, upstreamRequested);
+        pipeline.onNext(new QueryMessage("u", "q0"));
+        pipeline.onNext(new QueryMessage("u", "q1"));
+
+        // 第二条先完成，按顺序等待第一条
+        calls.get(1).complete(result(1));
+        pipeline.request(5);
+        assertTrue(replies.isEmpty());
+
+        calls.get(0).complete(result(0));
+        assertEquals(2, replies.size());
+        assertEquals("q0", replies.get(0).getMessage().getText());
+        assertEquals(1, replies.get(1).getResult().getInt("i"));
+        assertEquals(4, upstreamRequested);
+    }
+
+    public void testNoDemand() {
+        QueryPipeline pipeline = pipeline(1);
+        pipeline.onNext(new QueryMessage("u", "q0"));
+        calls.get(0).complete(result(0));
+        assertTrue(replies.isEmpty());
+        assertEquals(1, upstreamRequested);
+
+        pipeline.onComplete();
+        assertFalse(completed);
+        pipeline.request(1);
+        assertEquals(1, replies.size());
+        assertTrue(completed);
+    }
+
+    public void testQueryError() {
+        QueryPipeline pipeline = pipeline(1);
+        pipeline.request(Long.MAX_VALUE);
+        pipeline.onNext(new QueryMessage("u", "q0"));
+        calls.get(0).completeExceptionally(new ChatbotException("failed"));
+        assertEquals(1, replies.size());
+        assertFalse(replies.get(0).isSuccess());
+        assertTrue(replies.get(0).getError() instanceof ChatbotException);
+    }
+}
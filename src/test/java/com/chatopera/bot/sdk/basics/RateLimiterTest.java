@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.RateLimitedException;
+import junit.framework.TestCase;
+
+import java.util.Collections;
+
+public class RateLimiterTest extends TestCase {
+
+    public void testKindOf() {
+        assertEquals(RateLimiter.Kind.INTERACTIVE, RateLimiter.kindOf("POST", "/faq/query?sdklang=java"));
+        assertEquals(RateLimiter.Kind.INTERACTIVE, RateLimiter.kindOf("POST", "/conversation/query"));
+        assertEquals(RateLimiter.Kind.BULK, RateLimiter.kindOf("POST", "/faq/database"));
+        assertEquals(RateLimiter.Kind.BULK, RateLimiter.kindOf("POST", "/clause/dictwords"));
+    }
+
+    public void testBurstAndSeparateBudgets() {
+        RateLimiter limiter = new RateLimiter(1, 2, 1, 1);
+        assertTrue(limiter.tryAcquire(RateLimiter.Kind.BULK));
+        assertFalse(limiter.tryAcquire(RateLimiter.Kind.BULK));
+
+        // bulk 用尽不影响交互请求
+        assertTrue(limiter.tryAcquire(RateLimiter.Kind.INTERACTIVE));
+        assertTrue(limiter.tryAcquire(RateLimiter.Kind.INTERACTIVE));
+        assertFalse(limiter.tryAcquire(RateLimiter.Kind.INTERACTIVE));
+        assertEquals(2, limiter.getRejected());
+    }
+
+    public void testBlocking() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, 1, 20, 1);
+        limiter.acquire(RateLimiter.Kind.BULK);
+        long start = System.nanoTime();
+        limiter.acquire(RateLimiter.Kind.BULK);
+        assertTrue(System.nanoTime() - start >= 40000000L);
+        assertEquals(1, limiter.getThrottled());
+
+        limiter.setMaxWait(1);
+        try {
+            limiter.acquire(RateLimiter.Kind.BULK);
+            fail();
+        } catch (RateLimitedException e) {
+            // waits longer than maxWait
+        }
+
+        limiter.setBlocking(false);
+        limiter.acquire(RateLimiter.Kind.INTERACTIVE);
+        try {
+            limiter.acquire(RateLimiter.Kind.INTERACTIVE);
+            fail();
+        } catch (RateLimitedException e) {
+            // try-acquire mode
+        }
+    }
+
+    public void testAdaptTo429() {
+        RateLimiter limiter = new RateLimiter(100, 10, 100, 10);
+        limiter.onResponse(RateLimiter.Kind.BULK, new TransportResponse(429, Collections.singletonMap("Retry-After", "1"), null));
+        assertEquals(50.0, limiter.getRate(RateLimiter.Kind.BULK), 0.01);
+        assertEquals(100.0, limiter.getRate(RateLimiter.Kind.INTERACTIVE), 0.01);
+        // paused until Retry-After
+        assertFalse(limiter.tryAcquire(RateLimiter.Kind.BULK));
+        assertTrue(limiter.tryAcquire(RateLimiter.Kind.INTERACTIVE));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(RateLimiter.Kind.BULK, new TransportResponse(200, null, null));
+        }
+        assertEquals(100.0, limiter.getRate(RateLimiter.Kind.BULK), 0.01);
+    }
+
+    public void testRemainingHeader() {
+        RateLimiter limiter = new RateLimiter(100, 10, 100, 10);
+        limiter.onResponse(RateLimiter.Kind.INTERACTIVE, new TransportResponse(200, Collections.singletonMap("X-RateLimit-Remaining", "0"), null));
+        assertFalse(limiter.tryAcquire(RateLimiter.Kind.INTERACTIVE));
+        assertFalse(limiter.tryAcquire(RateLimiter.Kind.BULK));
+    }
+}
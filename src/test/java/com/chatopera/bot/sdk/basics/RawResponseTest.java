@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+public class RawResponseTest extends TestCase {
+
+    private static RawResponse raw(final String body) {
+        return new RawResponse(new TransportResponse(200, Collections.singletonMap("X-Trace", "t"), body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String text(final RawResponse resp) {
+        return new String(resp.getBody(), StandardCharsets.UTF_8);
+    }
+
+    public void testScrub() {
+        RawResponse resp = raw("{\"rc\": 0, \"data\": {\"chatbotID\": \"x\", \"string\": \"你好 \\\"chatbotID\\\"\", \"n\": [1, {\"a\": 1, \"chatbotID\": {\"k\": [\"}\"]}}]}}");
+        assertEquals(0, resp.getRc());
+        assertEquals(200, resp.getStatus());
+        assertEquals("t", resp.getHeader("x-trace"));
+        assertEquals("{\"rc\": 0, \"data\": {\"string\": \"你好 \\\"chatbotID\\\"\", \"n\": [1, {\"a\": 1}]}}", text(resp));
+        JSONObject json = new JSONObject(text(resp));
+        assertEquals("你好 \"chatbotID\"", json.getJSONObject("data").getString("string"));
+    }
+
+    public void testScrubMembers() {
+        assertEquals("{}", text(raw("{\"chatbotID\": 1}")));
+        assertEquals("{\"a\":2}", text(raw("{\"chatbotID\":\"x\",\"a\":2}")));
+        assertEquals("{\"a\":2}", text(raw("{\"chatbotID\":\"x\",\"chatbotID\":null,\"a\":2}")));
+        assertEquals("{\"a\":2}", text(raw("{\"a\":2,\"chatbotID\":true}")));
+        assertEquals("{\"a\":2,\"b\":3}", text(raw("{\"a\":2,\"chatbotID\":[1,2],\"b\":3}")));
+        assertEquals("[{\"a\":\"chatbotID\"}]", text(raw("[{\"a\":\"chatbotID\"}]")));
+    }
+
+    public void testRc() {
+        assertEquals(3, raw("{\"data\": {\"rc\": 9}, \"rc\": \"3\"}").getRc());
+        assertEquals(-1, raw("{\"data\": {\"rc\": 0}}").getRc());
+        assertEquals(-1, raw("<html>502</html>").getRc());
+        assertEquals("<html>502</html>", text(raw("<html>502</html>")));
+    }
+
+    public void testByteBuffer() {
+        String body = "{\"rc\":0,\"data\":{\"chatbotID\":\"x\",\"id\":\"a\"}}";
+        RawResponse resp = raw(body);
+        ByteBuffer buf = resp.asByteBuffer();
+        assertTrue(buf.isReadOnly());
+        assertEquals(resp.getLength(), buf.remaining());
+        byte[] b = new byte[buf.remaining()];
+        buf.get(b);
+        assertEquals("{\"rc\":0,\"data\":{\"id\":\"a\"}}", new String(b, StandardCharsets.UTF_8));
+
+        RawResponse clean = raw("{\"rc\":0}");
+        assertEquals(clean.getLength(), clean.getBody().length);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest extends TestCase {
+
+    public void testKey() {
+        JSONObject body = new JSONObject();
+        body.put("query", "hello");
+        assertEquals("POST /faq/query\n{\"query\":\"hello\"}", RequestCoalescer.key("POST", "/faq/query", body));
+        assertEquals("GET /", RequestCoalescer.key("GET", "/", null));
+    }
+
+    public void testCoalesce() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Response shared = new Response();
+        shared.setData(new JSONObject().put("post", "hello"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Response>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(pool.submit(() -> coalescer.execute("GET /", () -> {
+                calls.incrementAndGet();
+                release.await();
+                return shared;
+            })));
+        }
+        while (coalescer.getRequests() < 4) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        // 每个调用方收到各自的副本，修改不影响其它调用方
+        List<Response> replies = new ArrayList<>();
+        for (Future<Response> r : results) {
+            Response resp = r.get();
+            assertNotSame(shared, resp);
+            assertEquals("hello", ((JSONObject) resp.getData()).getString("post"));
+            replies.add(resp);
+        }
+        ((JSONObject) replies.get(0).getData()).put("post", "changed");
+        for (int i = 1; i < replies.size(); i++) {
+            assertEquals("hello", ((JSONObject) replies.get(i).getData()).getString("post"));
+        }
+        assertEquals("hello", shared.toJSON().getJSONObject("data").getString("post"));
+        pool.shutdown();
+
+        assertEquals(1, calls.get());
+        assertEquals(3, coalescer.getCoalesced());
+        assertEquals(0.75, coalescer.getCoalescingRatio());
+        assertEquals(0, coalescer.getInflight());
+    }
+
+    public void testException() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        try {
+            coalescer.execute("GET /", () -> {
+                throw new ChatbotException("failed");
+            });
+            fail();
+        } catch (ChatbotException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, coalescer.getInflight());
+    }
+
+    public void testCoalesceAsync() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger calls = new AtomicInteger();
+        final CompletableFuture<Response> sent = new CompletableFuture<>();
+
+        CompletableFuture<Response> a = coalescer.executeAsync("GET /", () -> {
+            calls.incrementAndGet();
+            return sent;
+        });
+        CompletableFuture<Response> b = coalescer.executeAsync("GET /", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertEquals(1, coalescer.getInflight());
+        assertFalse(b.isDone());
+
+        Response resp = Response.lazy("{\"rc\":0,\"data\":{\"post\":\"hello\"}}");
+        sent.complete(resp);
+        assertNotSame(a.get(), b.get());
+        ((JSONObject) a.get().getData()).remove("post");
+        assertEquals("hello", ((JSONObject) b.get().getData()).getString("post"));
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getCoalesced());
+        assertEquals(0, coalescer.getInflight());
+    }
+
+    public void testExceptionAsync() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CompletableFuture<Response> sent = new CompletableFuture<>();
+        CompletableFuture<Response> future = coalescer.executeAsync("GET /", () -> sent);
+        sent.completeExceptionally(new ChatbotException("failed"));
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("failed", e.getCause().getMessage());
+        }
+        assertEquals(0, coalescer.getInflight());
+    }
+}
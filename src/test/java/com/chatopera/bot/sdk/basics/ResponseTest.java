@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import junit.framework.TestCase;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public class ResponseTest extends TestCase {
+
+    public void testLazy() throws Exception {
+        String json = "{\"rc\": 0, \"msg\": null, \"total\": 2, \"current_page\": 1, \"total_page\": 1," +
+                " \"data\": [{\"id\": \"a\", \"post\": \"你好 \\\"}\", \"chatbotID\": \"x\"}, {\"id\": \"b\", \"chatbotID\": \"x\"}]," +
+                " \"status\": {\"code\": 0}}";
+        Response resp = Response.lazy(json);
+        assertEquals(0, resp.getRc());
+        assertEquals("", resp.getMsg());
+        assertEquals(2, resp.getTotal());
+        assertEquals(1, resp.getTotal_page());
+        assertTrue(resp.isPending());
+
+        assertEquals(Response.DATA_JSON_ARRAY, resp.getDataType());
+        assertFalse(resp.isPending());
+        JSONArray data = (JSONArray) resp.getData();
+        assertEquals(2, data.length());
+        assertEquals("你好 \"}", data.getJSONObject(0).getString("post"));
+        assertFalse(data.getJSONObject(0).has("chatbotID"));
+        assertFalse(data.getJSONObject(1).has("chatbotID"));
+        assertEquals(0, resp.getStatus().getInt("code"));
+    }
+
+    public void testLazyError() throws Exception {
+        Response resp = Response.lazy("{\"error\": {\"code\": 1}, \"rc\": \"3\", \"data\": {\"chatbotID\": \"x\"}}");
+        assertEquals(3, resp.getRc());
+        assertEquals(new JSONObject().put("code", 1).toString(), resp.getError());
+        assertEquals(-1, resp.getTotal());
+        // 失败的返回值保留 chatbotID，和 Chatbot#command 一致
+        assertTrue(((JSONObject) resp.getData()).has("chatbotID"));
+        assertNull(resp.getStatus());
+    }
+
+    public void testLazyInvalid() {
+        try {
+            Response.lazy("{\"data\": []}");
+            fail();
+        } catch (ChatbotException e) {
+            // rc is missing
+        }
+        try {
+            Response.lazy("{\"rc\": 0, \"data\": [1, 2}");
+            fail();
+        } catch (ChatbotException e) {
+            // unbalanced
+        }
+        try {
+            Response.lazy("{\"rc\": 0, \"data\": 1}");
+            fail();
+        } catch (ChatbotException e) {
+            // scalar data
+        }
+        try {
+            Response.lazy("{\"rc\": 0, \"data\": null}");
+            fail();
+        } catch (ChatbotException e) {
+            // null data
+        }
+    }
+
+    public void testLazyStringData() throws Exception {
+        Response resp = Response.lazy("{\"rc\": 0, \"data\": \"hi\"}");
+        assertFalse(resp.isPending());
+        assertEquals(Response.DATA_NULL, resp.getDataType());
+    }
+
+    public void testToJSON() throws Exception {
+        Response resp = Response.lazy("{\"rc\": 0, \"data\": {\"string\": \"hi\", \"chatbotID\": \"x\"}}");
+        JSONObject j = resp.toJSON();
+        assertEquals(0, j.getInt("rc"));
+        assertEquals("hi", j.getJSONObject("data").getString("string"));
+        assertFalse(j.getJSONObject("data").has("chatbotID"));
+    }
+
+    public void testCopy() throws Exception {
+        Response resp = Response.lazy("{\"rc\": 0, \"msg\": \"ok\", \"total\": 2, \"data\": [{\"id\": 1}], \"status\": {\"code\": 1}}");
+        Response pending = resp.copy();
+        assertTrue(pending.isPending());
+        assertEquals("ok", pending.getMsg());
+        assertEquals(2, pending.getTotal());
+
+        // 副本各自解析，修改不影响原来的 Response
+        ((JSONArray) pending.getData()).remove(0);
+        pending.getStatus().put("code", 2);
+        assertEquals(1, ((JSONArray) resp.getData()).length());
+        assertEquals(1, resp.getStatus().getInt("code"));
+
+        Response decoded = resp.copy();
+        assertFalse(decoded.isPending());
+        ((JSONArray) decoded.getData()).getJSONObject(0).put("id", 3);
+        assertEquals(1, ((JSONArray) resp.getData()).getJSONObject(0).getInt("id"));
+        assertEquals(resp.toJSON().toString(), resp.copy().toJSON().toString());
+    }
+}
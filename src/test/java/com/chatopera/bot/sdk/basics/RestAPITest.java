@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ChatbotException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import kong.unirest.UnirestException;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+public class RestAPITest extends TestCase {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/malformed", ex -> reply(ex, 200, "{\"rc\": 0, \"data\": "));
+        server.createContext("/html", ex -> reply(ex, 502, "<html>502 Bad Gateway</html>"));
+        server.createContext("/ok", ex -> reply(ex, 200, "{\"rc\": 0, \"data\": {\"a\": 1}}"));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void reply(final HttpExchange ex, final int status, final String body) throws IOException {
+        byte[] out = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, out.length);
+        ex.getResponseBody().write(out);
+        ex.close();
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop(0);
+    }
+
+    public void testDecode() throws Exception {
+        assertEquals(1, RestAPI.get(baseUrl + "/ok").getJSONObject("data").getInt("a"));
+    }
+
+    public void testMalformedBody() {
+        try {
+            RestAPI.get(baseUrl + "/malformed");
+            fail();
+        } catch (UnirestException e) {
+            assertTrue(e.getMessage().startsWith("Unexpected result with API GET"));
+            // 保留解析错误
+            assertTrue(e.getCause() instanceof ChatbotException);
+            assertTrue(e.getCause().getCause() instanceof JSONException);
+        }
+    }
+
+    public void testNonJsonBody() throws Exception {
+        try {
+            RestAPI.post(baseUrl + "/html", null);
+            fail();
+        } catch (UnirestException e) {
+            assertTrue(e.getMessage().startsWith("Unexpected result with API POST"));
+            assertTrue(e.getCause() instanceof ChatbotException);
+        }
+
+        // Transport 接口返回原始的响应，解析时抛出 ChatbotException
+        TransportResponse resp = RestAPI.getDefault().request("GET", baseUrl + "/html", null, new HashMap<>());
+        assertEquals(502, resp.getStatus());
+        try {
+            resp.toJSON();
+            fail();
+        } catch (ChatbotException e) {
+            assertTrue(e.getCause() instanceof JSONException);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import com.chatopera.bot.exception.ResultException;
+import com.chatopera.bot.sdk.models.ConversationReply;
+import com.chatopera.bot.sdk.models.FaqDoc;
+import com.chatopera.bot.sdk.models.IntentReply;
+import com.chatopera.bot.sdk.models.Page;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class ResultDecoderTest extends TestCase {
+
+    private static byte[] bytes(final String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void testFaqHits() throws Exception {
+        byte[] body = IOUtils.toByteArray(getClass().getResourceAsStream("/fixtures/faq_query.json"));
+        List<FaqDoc> hits = ResultDecoder.decodeList(body, FaqDoc::read);
+        assertEquals(5, hits.size());
+        FaqDoc top = hits.get(0);
+        assertEquals("5f0c00000000000000000000", top.getId());
+        assertEquals(0.95, top.getScore(), 1e-9);
+        assertEquals("plain", top.getReply().getRtype());
+        assertTrue(top.getReply().getContent().startsWith("您好"));
+        assertEquals(1, top.getReplies().size());
+        assertEquals("c0", top.getCategories().get(0));
+    }
+
+    public void testConversation() throws Exception {
+        ConversationReply reply = ResultDecoder.decode(bytes("{\"rc\": 0, \"data\": {\"state\": \"default\", \"string\": \"您好\"," +
+                " \"chatbotID\": \"x\", \"logic_is_fallback\": false, \"subReplies\": [{\"string\": \"x\"}]," +
+                " \"service\": {\"provider\": \"faq\", \"docId\": \"d1\", \"score\": 0.9}," +
+                " \"faq\": [{\"id\": \"d1\", \"score\": 0.9, \"post\": \"问题\", \"reply\": \"旧版回复\"}]}}"), ConversationReply::read);
+        assertEquals("您好", reply.getText());
+        assertEquals("faq", reply.getProvider());
+        assertEquals("d1", reply.getDocId());
+        assertFalse(reply.isFallback());
+        assertEquals(1, reply.getFaq().size());
+        assertEquals("旧版回复", reply.getFaq().get(0).getReply().getContent());
+    }
+
+    public void testIntent() throws Exception {
+        IntentReply reply = ResultDecoder.decode(bytes("{\"rc\": 0, \"data\": {\"session\": {\"id\": \"s1\", \"uid\": \"u1\"," +
+                " \"intent_name\": \"book\", \"resolved\": false, \"entities\": [{\"name\": \"city\", \"val\": \"北京\"}, {\"name\": \"date\", \"val\": null}]}," +
+                " \"message\": {\"textMessage\": \"哪天出发？\", \"is_proactive\": true, \"is_fallback\": false}}}"), IntentReply::read);
+        assertEquals("s1", reply.getSession().getId());
+        assertEquals("book", reply.getSession().getIntentName());
+        assertEquals("北京", reply.getSession().getEntities().get("city"));
+        assertTrue(reply.getSession().getEntities().containsKey("date"));
+        assertNull(reply.getSession().getEntities().get("date"));
+        assertTrue(reply.isProactive());
+        assertEquals("哪天出发？", reply.getText());
+    }
+
+    public void testPage() throws Exception {
+        Page<FaqDoc> page = ResultDecoder.decodePage(bytes("{\"rc\": 0, \"total\": 31, \"current_page\": 1, \"total_page\": 2," +
+                " \"data\": [{\"id\": \"a\", \"post\": \"p\", \"enabled\": false, \"chatbotID\": \"x\"}]}"), FaqDoc::read);
+        assertEquals(31, page.getTotal());
+        assertTrue(page.hasNext());
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.getItems().get(0).isEnabled());
+        assertEquals(0.0, page.getItems().get(0).getScore());
+    }
+
+    public void testError() throws Exception {
+        try {
+            ResultDecoder.decode(bytes("{\"rc\": 2, \"error\": \"not found\", \"data\": \"x\"}"), FaqDoc::read);
+            fail();
+        } catch (ResultException e) {
+            assertEquals(2, e.getRc());
+            assertTrue(e.getMessage().contains("not found"));
+        }
+    }
+}
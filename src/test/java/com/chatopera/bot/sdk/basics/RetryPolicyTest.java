@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryPolicyTest extends TestCase {
+
+    private RetryPolicy policy() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setBaseDelay(1);
+        policy.setMaxDelay(5);
+        return policy;
+    }
+
+    public void testRetryIOException() throws Exception {
+        RetryPolicy policy = policy();
+        AtomicInteger calls = new AtomicInteger();
+        TransportResponse resp = policy.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException(new IOException("Connection reset"));
+            }
+            return new TransportResponse(200, null, "{\"rc\":0}".getBytes());
+        }, true);
+
+        assertEquals(200, resp.getStatus());
+        assertEquals(3, policy.getAttempts());
+        assertEquals(2, policy.getRetries());
+        assertEquals(0, policy.getGiveUps());
+    }
+
+    public void testExecuteAsync() throws Exception {
+        RetryPolicy policy = policy();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> future = policy.executeAsync(() -> {
+            CompletableFuture<TransportResponse> f = new CompletableFuture<>();
+            if (calls.incrementAndGet() == 1) {
+                f.completeExceptionally(new IOException("Connection reset"));
+            } else if (calls.get() == 2) {
+                f.complete(new TransportResponse(503, null, null));
+            } else {
+                f.complete(new TransportResponse(200, null, "{\"rc\":0}".getBytes()));
+            }
+            return f;
+        }, true);
+
+        assertEquals(200, future.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(3, policy.getAttempts());
+        assertEquals(2, policy.getRetries());
+    }
+
+    public void testExecuteAsyncNotRetryable() throws Exception {
+        RetryPolicy policy = policy();
+        CompletableFuture<TransportResponse> future = policy.executeAsync(() -> {
+            CompletableFuture<TransportResponse> f = new CompletableFuture<>();
+            f.completeExceptionally(new IOException("Connection reset"));
+            return f;
+        }, false);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(1, policy.getAttempts());
+    }
+
+    public void testNotRetryable() {
+        RetryPolicy policy = policy();
+        try {
+            policy.execute(() -> {
+                throw new IOException("Connection reset");
+            }, false);
+            fail();
+        } catch (Exception e) {
+            assertTrue(e instanceof IOException);
+        }
+        assertEquals(1, policy.getAttempts());
+        assertEquals(0, policy.getRetries());
+    }
+
+    public void testGiveUpOnStatus() throws Exception {
+        RetryPolicy policy = policy();
+        TransportResponse resp = policy.execute(() -> new TransportResponse(503, null, null), true);
+
+        assertEquals(503, resp.getStatus());
+        assertEquals(3, policy.getAttempts());
+        assertEquals(1, policy.getGiveUps());
+    }
+
+    public void testBudget() throws Exception {
+        RetryPolicy policy = policy();
+        policy.setMinRetries(1);
+        policy.setBudgetRatio(0);
+        policy.execute(() -> new TransportResponse(503, null, null), true);
+        policy.execute(() -> new TransportResponse(503, null, null), true);
+
+        assertEquals(1, policy.getRetries());
+        assertEquals(3, policy.getAttempts());
+        assertEquals(2, policy.getGiveUps());
+    }
+
+    public void testBackoff() {
+        RetryPolicy policy = new RetryPolicy();
+        for (int n = 1; n < 40; n++) {
+            long delay = policy.backoff(n);
+            assertTrue(delay >= 0 && delay <= policy.getMaxDelay());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.basics;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WarmupTest extends TestCase {
+
+    public void testRunConcurrently() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        int ok = Warmup.run(4, () -> {
+            int n = active.incrementAndGet();
+            peak.accumulateAndGet(n, Math::max);
+            Thread.sleep(50);
+            active.decrementAndGet();
+            if (calls.incrementAndGet() == 1) {
+                throw new IOException("Connection refused");
+            }
+            return new TransportResponse(200, null, null);
+        });
+
+        assertEquals(3, ok);
+        assertEquals(4, calls.get());
+        assertTrue(peak.get() > 1);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.benchmarks;
+
+import com.chatopera.bot.sdk.basics.Credentials;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求签名：之前每次创建 Mac、HashMap 和 JSONObject 的实现对比线程内复用的实现
+ * ./admin/bench.sh CredentialsBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CredentialsBenchmark {
+
+    private static final String CLIENT_ID = "5dd7d4b3ed6fbb0017e1c3de";
+    private static final String CLIENT_SECRET = "2b1c8e4a2f5d5a7c6e1b9d3f0a4c8e7b";
+    private static final String PATH = "/api/v1/chatbot/" + CLIENT_ID + "/faq/query?sdklang=java";
+
+    private Credentials credentials;
+
+    @Setup
+    public void setup() {
+        credentials = new Credentials(CLIENT_ID, CLIENT_SECRET);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generate() throws Exception {
+        return credentials.generate("POST", PATH);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String legacyGenerate() throws Exception {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String random = RandomStringUtils.random(10, false, true);
+        String signature = hmacSHA1(CLIENT_ID + timestamp + random + "POST" + PATH, CLIENT_SECRET);
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("appId", CLIENT_ID);
+        map.put("timestamp", timestamp);
+        map.put("random", random);
+        map.put("signature", signature);
+        return new String(Base64.encodeBase64(new JSONObject(map).toString().getBytes()));
+    }
+
+    private static String hmacSHA1(String encryptText, String encryptKey) throws Exception {
+        SecretKey secretKey = new SecretKeySpec(encryptKey.getBytes("UTF-8"), "HmacSHA1");
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(secretKey);
+        byte[] b = mac.doFinal(encryptText.getBytes("UTF-8"));
+        StringBuilder hs = new StringBuilder();
+        for (int n = 0; n < b.length; n++) {
+            String stmp = Integer.toHexString(b[n] & 0XFF);
+            if (stmp.length() == 1)
+                hs.append('0');
+            hs.append(stmp);
+        }
+        return hs.toString().toLowerCase();
+    }
+}
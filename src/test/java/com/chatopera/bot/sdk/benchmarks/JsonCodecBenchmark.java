@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.benchmarks;
+
+import com.chatopera.bot.sdk.basics.JacksonCodec;
+import com.chatopera.bot.sdk.basics.JsonCodec;
+import com.chatopera.bot.sdk.basics.OrgJsonCodec;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 编解码：org.json 对比 jackson-core 流式读写
+ * faq_query 为知识库检索的返回值（5 条，约 2KB），faq_database 为知识库列表页（100 条，约 40KB）
+ * ./admin/bench.sh JsonCodecBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    @Param({"org.json", "jackson"})
+    public String codecName;
+
+    @Param({"faq_query", "faq_database"})
+    public String payload;
+
+    private JsonCodec codec;
+    private byte[] body;
+    private JSONObject json;
+
+    @Setup
+    public void setup() throws Exception {
+        codec = "jackson".equals(codecName) ? new JacksonCodec() : new OrgJsonCodec();
+        if ("faq_query".equals(payload)) {
+            body = IOUtils.toByteArray(JsonCodecBenchmark.class.getResourceAsStream("/fixtures/faq_query.json"));
+        } else {
+            body = new OrgJsonCodec().encode(faqDatabase());
+        }
+        json = new OrgJsonCodec().decode(body);
+    }
+
+    private static JSONObject faqDatabase() {
+        JSONArray data = new JSONArray();
+        for (int i = 0; i < 100; i++) {
+            JSONObject doc = new JSONObject();
+            doc.put("id", String.format("5f0c%020d", i));
+            doc.put("post", "如何申请退款，订单号在哪里查看" + i);
+            doc.put("enabled", true);
+            doc.put("categories", new JSONArray().put("c" + (i % 5)));
+            doc.put("replies", new JSONArray().put(new JSONObject()
+                    .put("rtype", "plain").put("content", "您好，可以在【我的订单】页面找到订单号，然后点击申请退款，客服会在 24 小时内处理。" + i).put("enabled", true)));
+            doc.put("createdAt", "2023-03-01T08:00:00.000Z");
+            doc.put("updatedAt", "2023-03-02T08:00:00.000Z");
+            doc.put("chatbotID", "5dd7d4b3ed6fbb0017e1c3de");
+            data.put(doc);
+        }
+        return new JSONObject().put("rc", 0).put("data", data)
+                .put("total", 1000).put("current_page", 1).put("total_page", 10);
+    }
+
+    @Benchmark
+    public JSONObject decode() {
+        return codec.decode(body);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(json);
+    }
+}
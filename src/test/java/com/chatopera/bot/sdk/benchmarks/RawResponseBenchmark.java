@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.benchmarks;
+
+import com.chatopera.bot.sdk.basics.RawResponse;
+import com.chatopera.bot.sdk.basics.Response;
+import com.chatopera.bot.sdk.basics.TransportResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关转发：解析成 Response 再序列化对比 RawResponse 直接过滤响应体
+ * 使用 100 条记录的知识库列表页；RawResponse 会修改响应体，每次先复制一份，和传输层每次返回新数组一致
+ * ./admin/bench.sh RawResponseBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RawResponseBenchmark {
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        JSONArray data = new JSONArray();
+        for (int i = 0; i < 100; i++) {
+            JSONObject doc = new JSONObject();
+            doc.put("id", String.format("5f0c%020d", i));
+            doc.put("post", "如何申请退款，订单号在哪里查看" + i);
+            doc.put("enabled", true);
+            doc.put("categories", new JSONArray().put("c" + (i % 5)));
+            doc.put("replies", new JSONArray().put(new JSONObject()
+                    .put("rtype", "plain").put("content", "您好，可以在【我的订单】页面找到订单号，然后点击申请退款。" + i).put("enabled", true)));
+            doc.put("chatbotID", "5dd7d4b3ed6fbb0017e1c3de");
+            data.put(doc);
+        }
+        JSONObject result = new JSONObject();
+        result.put("rc", 0);
+        result.put("data", data);
+        result.put("total", 1000);
+        result.put("current_page", 1);
+        result.put("total_page", 10);
+        body = result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Chatbot#command 之后再序列化：完整解析、逐条去掉 chatbotID、复制到 Response、toJSON 并编码
+     */
+    @Benchmark
+    public ByteBuffer relayResponse() throws Exception {
+        JSONObject result = new JSONObject(new String(body, StandardCharsets.UTF_8));
+        JSONArray data = result.getJSONArray("data");
+        for (int i = 0; i < data.length(); i++) {
+            data.getJSONObject(i).remove("chatbotID");
+        }
+        Response resp = new Response();
+        resp.setRc(result.getInt("rc"));
+        resp.setData(data);
+        resp.setTotal(result.getInt("total"));
+        resp.setCurrent_page(result.getInt("current_page"));
+        resp.setTotal_page(result.getInt("total_page"));
+        return ByteBuffer.wrap(resp.toJSON().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public ByteBuffer relayRaw() {
+        return new RawResponse(new TransportResponse(200, Collections.emptyMap(), body.clone())).asByteBuffer();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.benchmarks;
+
+import com.chatopera.bot.sdk.basics.TransportResponse;
+import kong.unirest.JsonNode;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应解析：Unirest asJson 再转 org.json（两次解析一次序列化）对比直接从字节解析一次
+ * ./admin/bench.sh ResponseDecodeBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseDecodeBenchmark {
+
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        body = IOUtils.toByteArray(ResponseDecodeBenchmark.class.getResourceAsStream("/fixtures/faq_query.json"));
+    }
+
+    /**
+     * 之前的实现：Unirest 解析为 kong JSONObject，序列化后再用 org.json 解析
+     */
+    @Benchmark
+    public JSONObject doubleParse() {
+        JsonNode node = new JsonNode(new String(body, StandardCharsets.UTF_8));
+        return new JSONObject(node.getObject().toString());
+    }
+
+    @Benchmark
+    public JSONObject singleParse() throws Exception {
+        return new TransportResponse(200, null, body).toJSON();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018-2023 Chatopera Inc, <https://www.chatopera.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chatopera.bot.sdk.benchmarks;
+
+import com.chatopera.bot.sdk.basics.ResultDecoder;
+import com.chatopera.bot.sdk.basics.TransportResponse;
+import com.chatopera.bot.sdk.models.FaqDoc;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识库检索结果：toJSON 后按字段名读取最佳回复，对比流式解码为 FaqDoc
+ * ./admin/bench.sh TypedDecodeBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypedDecodeBenchmark {
+
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        body = IOUtils.toByteArray(TypedDecodeBenchmark.class.getResourceAsStream("/fixtures/faq_query.json"));
+    }
+
+    @Benchmark
+    public String toJSON() throws Exception {
+        JSONObject result = new TransportResponse(200, null, body).toJSON();
+        JSONArray data = result.getJSONArray("data");
+        for (int i = 0; i < data.length(); i++) {
+            data.getJSONObject(i).remove("chatbotID");
+        }
+        JSONObject top = data.getJSONObject(0);
+        return top.getString("id") + top.getDouble("score") + top.getJSONObject("reply").getString("content");
+    }
+
+    @Benchmark
+    public String typed() throws Exception {
+        List<FaqDoc> hits = ResultDecoder.decodeList(body, FaqDoc::read);
+        FaqDoc top = hits.get(0);
+        return top.getId() + top.getScore() + top.getReply().getContent();
+    }
+}